@@ -5,4 +5,14 @@ public interface MavlinkDialect
     MavlinkView resolve(int messageId);
 
     boolean supports(int messageId);
-}
\ No newline at end of file
+
+    default int targetSystemOffset(int messageId)
+    {
+        return -1;
+    }
+
+    default int targetComponentOffset(int messageId)
+    {
+        return -1;
+    }
+}
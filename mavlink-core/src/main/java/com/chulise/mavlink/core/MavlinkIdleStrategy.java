@@ -0,0 +1,106 @@
+package com.chulise.mavlink.core;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Called by polling loops after every poll with the amount of work done; zero means the poll found nothing.
+public interface MavlinkIdleStrategy
+{
+    void idle(int workCount);
+
+    static MavlinkIdleStrategy busySpin()
+    {
+        return workCount ->
+        {
+            if (workCount == 0)
+            {
+                Thread.onSpinWait();
+            }
+        };
+    }
+
+    static MavlinkIdleStrategy parking(long parkNanos)
+    {
+        long nanos = Math.max(1, parkNanos);
+        return workCount ->
+        {
+            if (workCount == 0)
+            {
+                LockSupport.parkNanos(nanos);
+            }
+        };
+    }
+
+    // Spins, then yields, then parks with exponentially growing periods; any work resets it. Not thread-safe.
+    static MavlinkIdleStrategy backoff(int maxSpins, int maxYields, long minParkNanos, long maxParkNanos)
+    {
+        return new Backoff(maxSpins, maxYields, minParkNanos, maxParkNanos);
+    }
+
+    static MavlinkIdleStrategy backoff()
+    {
+        return new Backoff(100, 10, 1_000L, 1_000_000L);
+    }
+
+    static MavlinkIdleStrategy fromName(String name)
+    {
+        if (name == null || name.isBlank() || "backoff".equalsIgnoreCase(name.trim()))
+        {
+            return backoff();
+        }
+        String v = name.trim().toLowerCase();
+        if ("spin".equals(v) || "busy-spin".equals(v))
+        {
+            return busySpin();
+        }
+        if ("park".equals(v))
+        {
+            return parking(100_000L);
+        }
+        throw new IllegalArgumentException("unknown idle strategy: " + name);
+    }
+
+    final class Backoff implements MavlinkIdleStrategy
+    {
+        private final int maxSpins;
+        private final int maxYields;
+        private final long minParkNanos;
+        private final long maxParkNanos;
+        private int spins;
+        private int yields;
+        private long parkNanos;
+
+        private Backoff(int maxSpins, int maxYields, long minParkNanos, long maxParkNanos)
+        {
+            this.maxSpins = Math.max(0, maxSpins);
+            this.maxYields = Math.max(0, maxYields);
+            this.minParkNanos = Math.max(1, minParkNanos);
+            this.maxParkNanos = Math.max(this.minParkNanos, maxParkNanos);
+            this.parkNanos = this.minParkNanos;
+        }
+
+        @Override
+        public void idle(int workCount)
+        {
+            if (workCount > 0)
+            {
+                spins = 0;
+                yields = 0;
+                parkNanos = minParkNanos;
+                return;
+            }
+            if (spins < maxSpins)
+            {
+                spins++;
+                Thread.onSpinWait();
+            } else if (yields < maxYields)
+            {
+                yields++;
+                Thread.yield();
+            } else
+            {
+                LockSupport.parkNanos(parkNanos);
+                parkNanos = Math.min(parkNanos << 1, maxParkNanos);
+            }
+        }
+    }
+}
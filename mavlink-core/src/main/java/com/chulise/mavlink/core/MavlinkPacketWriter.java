@@ -366,6 +366,16 @@ public final class MavlinkPacketWriter
             this.linkId = builder.linkId;
         }
 
+        public int sysId()
+        {
+            return sysId;
+        }
+
+        public int compId()
+        {
+            return compId;
+        }
+
         public int writeV1(ByteBuffer out,
                            int offset,
                            int sequence,
@@ -8,6 +8,8 @@ public class MavlinkParser
     private final Options options;
     private final IntLongHashMap signatureTimestamps;
     private static final long TIMESTAMP_UNSET = -1L;
+    private volatile long rejected;
+    private int resumeOffset;
 
     public MavlinkParser()
     {
@@ -74,6 +76,7 @@ public class MavlinkParser
             int headerLen = (magic == MavlinkPacketView.MAGIC_V2) ? 10 : 6;
             if (cursor + headerLen > limit)
             {
+                resumeOffset = cursor;
                 return null;
             }
 
@@ -95,6 +98,7 @@ public class MavlinkParser
 
             if (cursor + totalPacketLen > limit)
             {
+                resumeOffset = cursor;
                 return null;
             }
 
@@ -102,6 +106,7 @@ public class MavlinkParser
 
             if (options.strict() && !validateStrict(packetView, dialect, options))
             {
+                rejected++;
                 cursor++;
                 continue;
             }
@@ -109,9 +114,23 @@ public class MavlinkParser
             return new ParseResult(packetView, totalPacketLen, cursor);
         }
 
+        resumeOffset = limit;
         return null;
     }
 
+    // Where the last next() that returned null stopped: the start of a frame that is not complete yet, or the limit.
+    // Bytes before it were skipped or rejected, so a caller waiting for more data can resume here instead of
+    // scanning (and in strict mode rejecting) the same bytes again.
+    public int resumeOffset()
+    {
+        return resumeOffset;
+    }
+
+    public long rejectedCount()
+    {
+        return rejected;
+    }
+
     public record ParseResult(MavlinkPacketView view, int length, int startOffset)
     {
     }
@@ -51,6 +51,17 @@ public abstract class MavlinkView
         }
     }
 
+    public void wrapPayload(ByteBuffer buffer, int offset)
+    {
+        this.buffer = buffer;
+        this.offset = offset;
+
+        if (this.buffer.order() != ByteOrder.LITTLE_ENDIAN)
+        {
+            this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
     public abstract int getMessageId();
 
     public abstract int getCrcExtra();
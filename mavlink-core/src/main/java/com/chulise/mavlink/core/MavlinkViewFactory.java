@@ -0,0 +1,7 @@
+package com.chulise.mavlink.core;
+
+@FunctionalInterface
+public interface MavlinkViewFactory<T extends MavlinkView>
+{
+    T newView();
+}
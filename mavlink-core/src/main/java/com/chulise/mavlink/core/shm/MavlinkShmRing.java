@@ -0,0 +1,244 @@
+package com.chulise.mavlink.core.shm;
+
+import com.chulise.mavlink.core.MavlinkPacketView;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Single-producer, multi-consumer broadcast ring in a memory-mapped file. Each slot carries the sequence that last
+// completed it; a producer marks a slot with the negated sequence while writing, so readers detect being lapped.
+public final class MavlinkShmRing implements AutoCloseable
+{
+    public static final int MIN_SLOT_SIZE = 512;
+
+    private static final int MAGIC = 0x4D4C5352;
+    private static final int VERSION = 1;
+    private static final int HEADER_LEN = 128;
+    private static final int OFF_MAGIC = 0;
+    private static final int OFF_VERSION = 4;
+    private static final int OFF_SLOTS = 8;
+    private static final int OFF_SLOT_SIZE = 12;
+    private static final int OFF_CURSOR = 64;
+    private static final int SLOT_HEADER = 16;
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int slots;
+    private final int slotSize;
+    private final int mask;
+
+    private MavlinkShmRing(FileChannel channel, MappedByteBuffer map, int slots, int slotSize)
+    {
+        this.channel = channel;
+        this.map = map;
+        this.slots = slots;
+        this.slotSize = slotSize;
+        this.mask = slots - 1;
+    }
+
+    // Creates or resets the ring file; consumers attached to an earlier ring notice the reset and restart at the tail.
+    public static MavlinkShmRing create(Path path, int slots, int slotSize)
+    {
+        int count = Integer.highestOneBit(Math.max(2, slots) - 1) << 1;
+        int size = Integer.highestOneBit(Math.max(MIN_SLOT_SIZE, slotSize) - 1) << 1;
+        try
+        {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long length = HEADER_LEN + (long) count * size;
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            map.putInt(OFF_MAGIC, 0);
+            VarHandle.fullFence();
+            for (int i = 0; i < count; i++)
+            {
+                LONGS.setRelease(map, HEADER_LEN + i * size, 0L);
+            }
+            map.putInt(OFF_SLOTS, count);
+            map.putInt(OFF_SLOT_SIZE, size);
+            map.putInt(OFF_VERSION, VERSION);
+            LONGS.setRelease(map, OFF_CURSOR, 0L);
+            VarHandle.fullFence();
+            map.putInt(OFF_MAGIC, MAGIC);
+            return new MavlinkShmRing(channel, map, count, size);
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException("cannot create shm ring: " + path, e);
+        }
+    }
+
+    public static MavlinkShmRing open(Path path)
+    {
+        try
+        {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_LEN);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(OFF_MAGIC) != MAGIC || header.getInt(OFF_VERSION) != VERSION)
+            {
+                channel.close();
+                throw new IllegalStateException("not a mavlink shm ring: " + path);
+            }
+            int slots = header.getInt(OFF_SLOTS);
+            int slotSize = header.getInt(OFF_SLOT_SIZE);
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_LEN + (long) slots * slotSize);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            return new MavlinkShmRing(channel, map, slots, slotSize);
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException("cannot open shm ring: " + path, e);
+        }
+    }
+
+    public int slots()
+    {
+        return slots;
+    }
+
+    public int maxFrameLength()
+    {
+        return slotSize - SLOT_HEADER;
+    }
+
+    public Publisher publisher()
+    {
+        return new Publisher();
+    }
+
+    // Starts at the tail: only frames published after this call are seen.
+    public Subscriber subscriber()
+    {
+        return new Subscriber();
+    }
+
+    private long cursor()
+    {
+        return (long) LONGS.getAcquire(map, OFF_CURSOR);
+    }
+
+    private int slotOffset(long sequence)
+    {
+        return HEADER_LEN + (int) ((sequence - 1) & mask) * slotSize;
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            channel.close();
+        } catch (IOException ignore)
+        {
+        }
+    }
+
+    @FunctionalInterface
+    public interface FrameHandler
+    {
+        // The packet and buffer point into the subscriber's own copy of the slot, taken before the handler runs and
+        // checked against the producer afterwards, so a frame the producer overwrote mid-copy is never handed over.
+        // Both are only valid during the call.
+        void onFrame(MavlinkPacketView packet, ByteBuffer buffer, int offset, int length);
+    }
+
+    // Not thread-safe: there must be exactly one publisher per ring.
+    public final class Publisher
+    {
+        private long next;
+
+        private Publisher()
+        {
+            this.next = cursor() + 1;
+        }
+
+        public void publish(ByteBuffer frame, int offset, int length)
+        {
+            if (length > slotSize - SLOT_HEADER)
+            {
+                throw new IllegalStateException("frame larger than shm slot: " + length);
+            }
+            long sequence = next++;
+            int base = slotOffset(sequence);
+            LONGS.setRelease(map, base, -sequence);
+            VarHandle.storeStoreFence();
+            map.putInt(base + 8, length);
+            map.put(base + SLOT_HEADER, frame, offset, length);
+            LONGS.setRelease(map, base, sequence);
+            LONGS.setRelease(map, OFF_CURSOR, sequence);
+        }
+    }
+
+    // One subscriber per consuming thread.
+    public final class Subscriber
+    {
+        private final MavlinkPacketView packet = new MavlinkPacketView();
+        private final ByteBuffer scratch = ByteBuffer.allocateDirect(slotSize - SLOT_HEADER)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        private long next;
+        private long lost;
+
+        private Subscriber()
+        {
+            this.next = cursor() + 1;
+        }
+
+        public long lost()
+        {
+            return lost;
+        }
+
+        public int poll(FrameHandler handler, int limit)
+        {
+            long cursor = cursor();
+            if (cursor + 1 < next)
+            {
+                // The producer recreated the ring.
+                next = cursor + 1;
+            }
+            int handled = 0;
+            while (handled < limit && next <= cursor)
+            {
+                if (cursor - next >= slots)
+                {
+                    long oldest = cursor - slots + 1;
+                    lost += oldest - next;
+                    next = oldest;
+                }
+                int base = slotOffset(next);
+                long before = (long) LONGS.getAcquire(map, base);
+                int length = map.getInt(base + 8);
+                if (before != next || length <= 0 || length > slotSize - SLOT_HEADER)
+                {
+                    lost++;
+                    next++;
+                    cursor = cursor();
+                    continue;
+                }
+                scratch.clear();
+                scratch.put(0, map, base + SLOT_HEADER, length);
+                VarHandle.loadLoadFence();
+                if ((long) LONGS.getAcquire(map, base) != next)
+                {
+                    // Lapped while copying: the copy may mix two frames.
+                    lost++;
+                    next++;
+                    cursor = cursor();
+                    continue;
+                }
+                packet.wrap(scratch, 0);
+                handler.onFrame(packet, scratch, 0, length);
+                next++;
+                handled++;
+            }
+            return handled;
+        }
+    }
+}
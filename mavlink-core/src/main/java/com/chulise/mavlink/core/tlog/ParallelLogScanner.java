@@ -0,0 +1,276 @@
+package com.chulise.mavlink.core.tlog;
+
+import com.chulise.mavlink.core.MavlinkDialect;
+import com.chulise.mavlink.core.MavlinkPacketView;
+import com.chulise.mavlink.core.MavlinkParser;
+import com.chulise.mavlink.core.MessageSpecProvider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+// Splits a log into chunks decoded in parallel. Every chunk but the first starts at the first strictly valid frame
+// followed by another valid frame, and decodes up to where the next chunk starts.
+public final class ParallelLogScanner
+{
+    public enum Format
+    {
+        TLOG,
+        RAW
+    }
+
+    @FunctionalInterface
+    public interface Visitor<A>
+    {
+        // timestampMicros is -1 for raw logs; the packet is only valid during the call.
+        void visit(A accumulator, long timestampMicros, MavlinkPacketView packet);
+    }
+
+    private static final int MAX_RECORD_LEN = TlogReader.MAX_RECORD_LEN;
+
+    private final MavlinkDialect dialect;
+    private final MavlinkParser.Options options;
+    private final Format format;
+    private final long chunkSize;
+    private final ForkJoinPool pool;
+
+    private ParallelLogScanner(Builder builder)
+    {
+        this.dialect = builder.dialect;
+        this.format = builder.format;
+        this.chunkSize = builder.chunkSize;
+        this.pool = builder.pool != null ? builder.pool : ForkJoinPool.commonPool();
+        MavlinkParser.Options.Builder options = MavlinkParser.Options.builder()
+                .strict(true)
+                .allowUnknown(false);
+        if (builder.messageSpecProvider != null)
+        {
+            options.messageSpecProvider(builder.messageSpecProvider);
+        }
+        this.options = options.build();
+    }
+
+    public static Builder builder(MavlinkDialect dialect)
+    {
+        return new Builder(dialect);
+    }
+
+    public <A> A scan(Path file, Supplier<A> accumulator, Visitor<A> visitor, BinaryOperator<A> combiner)
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            int chunks = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+            return pool.invoke(new ChunkTask<>(channel, size, chunks, 0, chunks, accumulator, visitor, combiner));
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException("cannot scan log: " + file, e);
+        }
+    }
+
+    private <A> A scanChunk(FileChannel channel,
+                            long size,
+                            int chunk,
+                            int chunks,
+                            Supplier<A> accumulator,
+                            Visitor<A> visitor)
+    {
+        A acc = accumulator.get();
+        MavlinkParser parser = new MavlinkParser(options);
+        long begin = chunk == 0 ? 0 : boundary(channel, size, parser, chunk);
+        if (begin < 0)
+        {
+            return acc;
+        }
+        long end = size;
+        for (int next = chunk + 1; next < chunks; next++)
+        {
+            long b = boundary(channel, size, parser, next);
+            if (b >= 0)
+            {
+                end = b;
+                break;
+            }
+        }
+
+        MappedByteBuffer buffer = map(channel, begin, Math.min(size, end + 2L * MAX_RECORD_LEN));
+        int prefix = prefix();
+        int limit = (int) (end - begin);
+        int pos = 0;
+        while (pos < limit)
+        {
+            MavlinkParser.ParseResult res = parser.next(buffer, pos + prefix, dialect);
+            if (res == null)
+            {
+                break;
+            }
+            int record = res.startOffset() - prefix;
+            if (record >= limit)
+            {
+                break;
+            }
+            long timestamp = prefix == 0 ? -1L : Long.reverseBytes(buffer.getLong(record));
+            visitor.visit(acc, timestamp, res.view());
+            pos = res.startOffset() + res.length();
+        }
+        return acc;
+    }
+
+    // Absolute start of the first record owned by the chunk, or -1 when no record starts inside it.
+    // Both neighbours compute the same value, so each record is decoded exactly once.
+    private long boundary(FileChannel channel, long size, MavlinkParser parser, int chunk)
+    {
+        long start = chunk * chunkSize;
+        int owned = (int) Math.min(chunkSize, size - start);
+        MappedByteBuffer buffer = map(channel, start, Math.min(size, start + owned + 2L * MAX_RECORD_LEN));
+        int prefix = prefix();
+        int limit = buffer.limit();
+        int cursor = 0;
+        while (cursor < owned)
+        {
+            MavlinkParser.ParseResult res = parser.next(buffer, cursor + prefix, dialect);
+            if (res == null)
+            {
+                return -1;
+            }
+            int record = res.startOffset() - prefix;
+            if (record >= owned)
+            {
+                return -1;
+            }
+            int after = res.startOffset() + res.length();
+            if (after + prefix >= limit)
+            {
+                return start + record;
+            }
+            // A CRC-valid match inside another frame's bytes is rarely followed by a second valid frame.
+            MavlinkParser.ParseResult following = parser.next(buffer, after + prefix, dialect);
+            if (following == null || following.startOffset() == after + prefix)
+            {
+                return start + record;
+            }
+            cursor = record + 1;
+        }
+        return -1;
+    }
+
+    private int prefix()
+    {
+        return format == Format.TLOG ? TlogRecorder.TIMESTAMP_LEN : 0;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long from, long to)
+    {
+        try
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException("cannot map log range at " + from, e);
+        }
+    }
+
+    private final class ChunkTask<A> extends RecursiveTask<A>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long size;
+        private final int chunks;
+        private final int from;
+        private final int to;
+        private final Supplier<A> accumulator;
+        private final Visitor<A> visitor;
+        private final BinaryOperator<A> combiner;
+
+        ChunkTask(FileChannel channel,
+                  long size,
+                  int chunks,
+                  int from,
+                  int to,
+                  Supplier<A> accumulator,
+                  Visitor<A> visitor,
+                  BinaryOperator<A> combiner)
+        {
+            this.channel = channel;
+            this.size = size;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.accumulator = accumulator;
+            this.visitor = visitor;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected A compute()
+        {
+            if (to - from == 1)
+            {
+                return scanChunk(channel, size, from, chunks, accumulator, visitor);
+            }
+            int mid = (from + to) >>> 1;
+            ChunkTask<A> left = new ChunkTask<>(channel, size, chunks, from, mid, accumulator, visitor, combiner);
+            ChunkTask<A> right = new ChunkTask<>(channel, size, chunks, mid, to, accumulator, visitor, combiner);
+            left.fork();
+            A rightResult = right.compute();
+            return combiner.apply(left.join(), rightResult);
+        }
+    }
+
+    public static final class Builder
+    {
+        private final MavlinkDialect dialect;
+        private MessageSpecProvider messageSpecProvider;
+        private Format format = Format.TLOG;
+        private long chunkSize = 16L << 20;
+        private ForkJoinPool pool;
+
+        private Builder(MavlinkDialect dialect)
+        {
+            if (dialect == null)
+            {
+                throw new IllegalArgumentException("dialect is required for strict resync");
+            }
+            this.dialect = dialect;
+        }
+
+        public Builder messageSpecProvider(MessageSpecProvider value)
+        {
+            this.messageSpecProvider = value;
+            return this;
+        }
+
+        public Builder format(Format value)
+        {
+            this.format = value;
+            return this;
+        }
+
+        public Builder chunkSize(long value)
+        {
+            this.chunkSize = Math.max(4L * MAX_RECORD_LEN, Math.min(value, 1L << 30));
+            return this;
+        }
+
+        public Builder pool(ForkJoinPool value)
+        {
+            this.pool = value;
+            return this;
+        }
+
+        public ParallelLogScanner build()
+        {
+            return new ParallelLogScanner(this);
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package com.chulise.mavlink.core.tlog;
+
+import com.chulise.mavlink.core.MavlinkPacketView;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Sidecar index of a .tlog: sparse (timestamp, position) checkpoints plus per-msgid postings of record positions,
+// each posting list stored as varint deltas.
+public final class TlogIndex
+{
+    public static final String SUFFIX = ".idx";
+    private static final int MAGIC = 0x4D4C4958;
+    private static final int VERSION = 1;
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 1024;
+
+    private final long recordCount;
+    private final long[] checkpointTimes;
+    private final long[] checkpointPositions;
+    private final int[] messageIds;
+    private final Postings[] postings;
+
+    private TlogIndex(long recordCount,
+                      long[] checkpointTimes,
+                      long[] checkpointPositions,
+                      int[] messageIds,
+                      Postings[] postings)
+    {
+        this.recordCount = recordCount;
+        this.checkpointTimes = checkpointTimes;
+        this.checkpointPositions = checkpointPositions;
+        this.messageIds = messageIds;
+        this.postings = postings;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder(DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    public static Builder builder(int checkpointInterval)
+    {
+        return new Builder(Math.max(1, checkpointInterval));
+    }
+
+    public static Path sidecar(Path tlog)
+    {
+        return tlog.resolveSibling(tlog.getFileName().toString() + SUFFIX);
+    }
+
+    public static TlogIndex build(TlogReader reader)
+    {
+        Builder builder = builder();
+        TlogReader.Cursor cursor = reader.cursor();
+        while (cursor.next())
+        {
+            builder.add(cursor.position(), cursor.timestampMicros(), messageId(cursor.buffer(), cursor.frameOffset()));
+        }
+        return builder.build();
+    }
+
+    public long recordCount()
+    {
+        return recordCount;
+    }
+
+    public int[] messageIds()
+    {
+        return messageIds.clone();
+    }
+
+    public long count(int messageId)
+    {
+        int idx = Arrays.binarySearch(messageIds, messageId);
+        return idx < 0 ? 0 : postings[idx].count;
+    }
+
+    public long firstTimestampMicros()
+    {
+        return checkpointTimes.length == 0 ? Long.MIN_VALUE : checkpointTimes[0];
+    }
+
+    // Position of the last checkpoint at or before the timestamp; scanning forward from it finds the exact record.
+    public long checkpointBefore(long timestampMicros)
+    {
+        int lo = 0;
+        int hi = checkpointTimes.length - 1;
+        long found = 0;
+        while (lo <= hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (checkpointTimes[mid] <= timestampMicros)
+            {
+                found = checkpointPositions[mid];
+                lo = mid + 1;
+            } else
+            {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    PositionIterator positions(int[] ids, long fromPosition)
+    {
+        Postings[] selected = new Postings[ids.length];
+        int n = 0;
+        for (int id : ids)
+        {
+            int idx = Arrays.binarySearch(messageIds, id);
+            if (idx >= 0)
+            {
+                selected[n++] = postings[idx];
+            }
+        }
+        return new PositionIterator(Arrays.copyOf(selected, n), fromPosition);
+    }
+
+    public void save(Path path)
+    {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(recordCount);
+            out.writeInt(checkpointTimes.length);
+            for (int i = 0; i < checkpointTimes.length; i++)
+            {
+                out.writeLong(checkpointTimes[i]);
+                out.writeLong(checkpointPositions[i]);
+            }
+            out.writeInt(messageIds.length);
+            for (int i = 0; i < messageIds.length; i++)
+            {
+                Postings p = postings[i];
+                out.writeInt(messageIds[i]);
+                out.writeLong(p.count);
+                out.writeInt(p.size);
+                out.write(p.data, 0, p.size);
+            }
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException("cannot write tlog index: " + path, e);
+        }
+    }
+
+    public static TlogIndex load(Path path)
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path))))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                throw new IllegalStateException("not a tlog index: " + path);
+            }
+            long recordCount = in.readLong();
+            int checkpoints = in.readInt();
+            long[] times = new long[checkpoints];
+            long[] positions = new long[checkpoints];
+            for (int i = 0; i < checkpoints; i++)
+            {
+                times[i] = in.readLong();
+                positions[i] = in.readLong();
+            }
+            int ids = in.readInt();
+            int[] messageIds = new int[ids];
+            Postings[] postings = new Postings[ids];
+            for (int i = 0; i < ids; i++)
+            {
+                messageIds[i] = in.readInt();
+                long count = in.readLong();
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                postings[i] = new Postings(data, data.length, count);
+            }
+            return new TlogIndex(recordCount, times, positions, messageIds, postings);
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException("cannot read tlog index: " + path, e);
+        }
+    }
+
+    static int messageId(ByteBuffer buffer, int frameOffset)
+    {
+        if ((buffer.get(frameOffset) & 0xFF) == MavlinkPacketView.MAGIC_V2)
+        {
+            return (buffer.get(frameOffset + 7) & 0xFF)
+                    | ((buffer.get(frameOffset + 8) & 0xFF) << 8)
+                    | ((buffer.get(frameOffset + 9) & 0xFF) << 16);
+        }
+        return buffer.get(frameOffset + 5) & 0xFF;
+    }
+
+    static final class Postings
+    {
+        byte[] data;
+        int size;
+        long count;
+        long last;
+
+        Postings()
+        {
+            this.data = new byte[64];
+        }
+
+        Postings(byte[] data, int size, long count)
+        {
+            this.data = data;
+            this.size = size;
+            this.count = count;
+        }
+
+        void add(long position)
+        {
+            if (size + 10 > data.length)
+            {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            long delta = position - last;
+            while ((delta & ~0x7FL) != 0)
+            {
+                data[size++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            data[size++] = (byte) delta;
+            last = position;
+            count++;
+        }
+    }
+
+    // Merges the selected posting lists in file order.
+    static final class PositionIterator
+    {
+        private final Postings[] lists;
+        private final int[] offsets;
+        private final long[] heads;
+
+        PositionIterator(Postings[] lists, long fromPosition)
+        {
+            this.lists = lists;
+            this.offsets = new int[lists.length];
+            this.heads = new long[lists.length];
+            for (int i = 0; i < lists.length; i++)
+            {
+                heads[i] = -1;
+                long value = advance(i, 0);
+                while (value >= 0 && value < fromPosition)
+                {
+                    value = advance(i, value);
+                }
+                heads[i] = value;
+            }
+        }
+
+        long next()
+        {
+            int best = -1;
+            for (int i = 0; i < heads.length; i++)
+            {
+                if (heads[i] >= 0 && (best < 0 || heads[i] < heads[best]))
+                {
+                    best = i;
+                }
+            }
+            if (best < 0)
+            {
+                return -1;
+            }
+            long value = heads[best];
+            heads[best] = advance(best, value);
+            return value;
+        }
+
+        private long advance(int list, long previous)
+        {
+            Postings p = lists[list];
+            int offset = offsets[list];
+            if (offset >= p.size)
+            {
+                return -1;
+            }
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do
+            {
+                b = p.data[offset++];
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            offsets[list] = offset;
+            return previous + delta;
+        }
+    }
+
+    public static final class Builder
+    {
+        private final int checkpointInterval;
+        private long[] times = new long[16];
+        private long[] positions = new long[16];
+        private int checkpoints;
+        private long records;
+        private final IntMap postings = new IntMap();
+
+        private Builder(int checkpointInterval)
+        {
+            this.checkpointInterval = checkpointInterval;
+        }
+
+        public void add(long position, long timestampMicros, int messageId)
+        {
+            if (records % checkpointInterval == 0)
+            {
+                if (checkpoints == times.length)
+                {
+                    times = Arrays.copyOf(times, checkpoints * 2);
+                    positions = Arrays.copyOf(positions, checkpoints * 2);
+                }
+                times[checkpoints] = timestampMicros;
+                positions[checkpoints] = position;
+                checkpoints++;
+            }
+            records++;
+            postings.get(messageId).add(position);
+        }
+
+        public TlogIndex build()
+        {
+            int[] ids = postings.keys();
+            Arrays.sort(ids);
+            Postings[] lists = new Postings[ids.length];
+            for (int i = 0; i < ids.length; i++)
+            {
+                lists[i] = postings.get(ids[i]);
+            }
+            return new TlogIndex(records,
+                    Arrays.copyOf(times, checkpoints),
+                    Arrays.copyOf(positions, checkpoints),
+                    ids,
+                    lists);
+        }
+    }
+
+    // Open-addressing msgid map so indexing while recording does not box ids.
+    private static final class IntMap
+    {
+        private int[] keys = new int[64];
+        private Postings[] values = new Postings[64];
+        private int size;
+
+        Postings get(int key)
+        {
+            int mask = keys.length - 1;
+            int idx = (key * 0x9E3779B9) >>> 16 & mask;
+            while (values[idx] != null)
+            {
+                if (keys[idx] == key)
+                {
+                    return values[idx];
+                }
+                idx = (idx + 1) & mask;
+            }
+            if (size * 2 >= keys.length)
+            {
+                grow();
+                return get(key);
+            }
+            keys[idx] = key;
+            values[idx] = new Postings();
+            size++;
+            return values[idx];
+        }
+
+        int[] keys()
+        {
+            int[] out = new int[size];
+            int n = 0;
+            for (int i = 0; i < keys.length; i++)
+            {
+                if (values[i] != null)
+                {
+                    out[n++] = keys[i];
+                }
+            }
+            return out;
+        }
+
+        private void grow()
+        {
+            int[] oldKeys = keys;
+            Postings[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new Postings[oldValues.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++)
+            {
+                if (oldValues[i] == null)
+                {
+                    continue;
+                }
+                int idx = (oldKeys[i] * 0x9E3779B9) >>> 16 & mask;
+                while (values[idx] != null)
+                {
+                    idx = (idx + 1) & mask;
+                }
+                keys[idx] = oldKeys[i];
+                values[idx] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.chulise.mavlink.core.tlog;
+
+import com.chulise.mavlink.core.MavlinkPacketView;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Read-only view of a .tlog file; large files are mapped as overlapping regions so a record never straddles two.
+public final class TlogReader implements AutoCloseable
+{
+    static final int MAX_RECORD_LEN = TlogRecorder.TIMESTAMP_LEN
+            + MavlinkPacketView.HEADER_LEN_V2 + 255 + 2 + MavlinkPacketView.SIGNATURE_LEN;
+    private static final long DEFAULT_REGION_SIZE = 1L << 30;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long size;
+    private final long regionSize;
+    private final MappedByteBuffer[] regions;
+    private TlogIndex index;
+
+    private TlogReader(Path path, long regionSize)
+    {
+        this.path = path;
+        this.regionSize = regionSize;
+        try
+        {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.size = channel.size();
+            int count = (int) Math.max(1, (size + regionSize - 1) / regionSize);
+            this.regions = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++)
+            {
+                long start = i * regionSize;
+                long length = Math.min(size - start, regionSize + MAX_RECORD_LEN);
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0, length));
+            }
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException("cannot open tlog: " + path, e);
+        }
+    }
+
+    public static TlogReader open(Path path)
+    {
+        return new TlogReader(path, DEFAULT_REGION_SIZE);
+    }
+
+    static TlogReader open(Path path, long regionSize)
+    {
+        return new TlogReader(path, Math.max(MAX_RECORD_LEN, regionSize));
+    }
+
+    public Path path()
+    {
+        return path;
+    }
+
+    public long size()
+    {
+        return size;
+    }
+
+    public Cursor cursor()
+    {
+        return new Cursor(0, Long.MIN_VALUE, null);
+    }
+
+    public Cursor cursor(long position)
+    {
+        return new Cursor(position, Long.MIN_VALUE, null);
+    }
+
+    // First record at or after the timestamp, located through the index checkpoints.
+    public Cursor seek(long timestampMicros)
+    {
+        return new Cursor(index().checkpointBefore(timestampMicros), timestampMicros, null);
+    }
+
+    // Only the given message ids, read through their posting lists instead of scanning the file.
+    public Cursor seek(long timestampMicros, int... messageIds)
+    {
+        TlogIndex idx = index();
+        long from = timestampMicros == Long.MIN_VALUE ? 0 : idx.checkpointBefore(timestampMicros);
+        return new Cursor(from, timestampMicros, idx.positions(messageIds, from));
+    }
+
+    // Uses the sidecar when present, otherwise indexes the file with one scan.
+    public synchronized TlogIndex index()
+    {
+        if (index == null)
+        {
+            Path sidecar = TlogIndex.sidecar(path);
+            index = Files.exists(sidecar) ? TlogIndex.load(sidecar) : TlogIndex.build(this);
+        }
+        return index;
+    }
+
+    public synchronized void index(TlogIndex value)
+    {
+        this.index = value;
+    }
+
+    // Frame length at the given mapping index, or -1 when the bytes there cannot start a frame.
+    static int frameLength(ByteBuffer buffer, int index, int limit)
+    {
+        if (limit - index < MavlinkPacketView.HEADER_LEN_V1)
+        {
+            return -1;
+        }
+        int magic = buffer.get(index) & 0xFF;
+        int payloadLength = buffer.get(index + 1) & 0xFF;
+        int length;
+        if (magic == MavlinkPacketView.MAGIC_V2)
+        {
+            boolean signed = (buffer.get(index + 2) & MavlinkPacketView.INCOMPAT_FLAG_SIGNED) != 0;
+            length = MavlinkPacketView.HEADER_LEN_V2 + payloadLength + 2 + (signed ? MavlinkPacketView.SIGNATURE_LEN : 0);
+        } else if (magic == MavlinkPacketView.MAGIC_V1)
+        {
+            length = MavlinkPacketView.HEADER_LEN_V1 + payloadLength + 2;
+        } else
+        {
+            return -1;
+        }
+        return length <= limit - index ? length : -1;
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            channel.close();
+        } catch (IOException ignore)
+        {
+        }
+    }
+
+    public final class Cursor
+    {
+        private final MavlinkPacketView packet = new MavlinkPacketView();
+        private final long fromMicros;
+        private final TlogIndex.PositionIterator source;
+        private ByteBuffer region;
+        private ByteBuffer frames;
+        private int regionIndex = -1;
+        private long next;
+        private long position = -1;
+        private long timestampMicros;
+        private int frameOffset;
+        private int frameLength;
+
+        private Cursor(long position, long fromMicros, TlogIndex.PositionIterator source)
+        {
+            this.next = position;
+            this.fromMicros = fromMicros;
+            this.source = source;
+        }
+
+        public boolean next()
+        {
+            while (true)
+            {
+                if (source != null)
+                {
+                    long p = source.next();
+                    if (p < 0)
+                    {
+                        return false;
+                    }
+                    next = p;
+                }
+                if (!read())
+                {
+                    return false;
+                }
+                if (timestampMicros >= fromMicros)
+                {
+                    return true;
+                }
+            }
+        }
+
+        private boolean read()
+        {
+            if (next + TlogRecorder.TIMESTAMP_LEN >= size)
+            {
+                return false;
+            }
+            int at = select(next);
+            int limit = region.limit();
+            long timestamp = region.getLong(at);
+            int length = TlogReader.frameLength(region, at + TlogRecorder.TIMESTAMP_LEN, limit);
+            if (length < 0)
+            {
+                // End of data, or the zero-filled tail of a segment that could not be truncated.
+                next = size;
+                return false;
+            }
+            position = next;
+            timestampMicros = timestamp;
+            frameOffset = at + TlogRecorder.TIMESTAMP_LEN;
+            frameLength = length;
+            next += TlogRecorder.TIMESTAMP_LEN + length;
+            return true;
+        }
+
+        public void seek(long position)
+        {
+            this.next = position;
+            this.position = -1;
+        }
+
+        public long position()
+        {
+            return position;
+        }
+
+        public long timestampMicros()
+        {
+            return timestampMicros;
+        }
+
+        // Little-endian view of the mapping holding the current frame; valid until the next call to next().
+        public ByteBuffer buffer()
+        {
+            return frames;
+        }
+
+        public int frameOffset()
+        {
+            return frameOffset;
+        }
+
+        public int frameLength()
+        {
+            return frameLength;
+        }
+
+        public MavlinkPacketView packet()
+        {
+            packet.wrap(frames, frameOffset);
+            return packet;
+        }
+
+        private int select(long absolute)
+        {
+            int index = (int) (absolute / regionSize);
+            if (index != regionIndex)
+            {
+                regionIndex = index;
+                region = regions[index].duplicate().order(ByteOrder.BIG_ENDIAN);
+                frames = regions[index].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return (int) (absolute - index * regionSize);
+        }
+    }
+}
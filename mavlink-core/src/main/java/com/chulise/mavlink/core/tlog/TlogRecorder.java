@@ -0,0 +1,366 @@
+package com.chulise.mavlink.core.tlog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Standard .tlog layout: every record is an 8-byte big-endian microsecond timestamp followed by the raw frame.
+// The flusher thread keeps the next segment created and mapped, so a roll on the writing thread is a pointer swap. If
+// no spare is ready (disk full, directory gone) frames that do not fit are dropped and counted instead of thrown.
+public final class TlogRecorder implements AutoCloseable
+{
+    public static final int TIMESTAMP_LEN = 8;
+
+    private final Path directory;
+    private final String prefix;
+    private final int segmentSize;
+    private final long rollIntervalNanos;
+    private final long flushIntervalNanos;
+    private final boolean indexed;
+    private final long baseMicros;
+    private final long baseNanos;
+    private final ConcurrentLinkedQueue<Segment> retired = new ConcurrentLinkedQueue<>();
+    private final Thread flusher;
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong segmentErrors = new AtomicLong();
+    private volatile Segment current;
+    private volatile Segment spare;
+    private volatile boolean running = true;
+    private int segmentIndex;
+
+    private TlogRecorder(Builder builder)
+    {
+        this.directory = builder.directory;
+        this.prefix = builder.prefix;
+        this.segmentSize = builder.segmentSize;
+        this.rollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(builder.rollIntervalMs);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(builder.flushIntervalMs);
+        this.indexed = builder.index;
+        this.baseMicros = System.currentTimeMillis() * 1000L;
+        this.baseNanos = System.nanoTime();
+        try
+        {
+            Files.createDirectories(directory);
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException("cannot create tlog directory: " + directory, e);
+        }
+        try
+        {
+            this.current = openSegment();
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException("cannot open tlog segment in " + directory, e);
+        }
+        this.current.openedNanos = baseNanos;
+        this.flusher = new Thread(this::flushLoop, "mavlink-tlog-flush");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public static Builder builder(Path directory)
+    {
+        return new Builder(directory);
+    }
+
+    public long timestampMicros()
+    {
+        return baseMicros + (System.nanoTime() - baseNanos) / 1000L;
+    }
+
+    public void append(ByteBuffer frame, int offset, int length)
+    {
+        append(timestampMicros(), frame, offset, length);
+    }
+
+    // Frames arriving after close are dropped like frames that find no segment to go into.
+    public synchronized void append(long timestampMicros, ByteBuffer frame, int offset, int length)
+    {
+        int recordLength = TIMESTAMP_LEN + length;
+        if (recordLength > segmentSize)
+        {
+            throw new IllegalStateException("frame larger than tlog segment: " + length);
+        }
+        if (!running)
+        {
+            droppedFrames.incrementAndGet();
+            return;
+        }
+        Segment segment = current;
+        boolean full = segment.position + recordLength > segmentSize;
+        long now = rollIntervalNanos > 0 || full ? System.nanoTime() : 0L;
+        if (full || (rollIntervalNanos > 0 && now - segment.openedNanos >= rollIntervalNanos))
+        {
+            Segment next = roll(now);
+            if (next != null)
+            {
+                segment = next;
+            } else if (full)
+            {
+                droppedFrames.incrementAndGet();
+                return;
+            }
+        }
+
+        MappedByteBuffer map = segment.map;
+        int pos = segment.position;
+        map.putLong(pos, timestampMicros);
+        map.put(pos + TIMESTAMP_LEN, frame, offset, length);
+        segment.position = pos + recordLength;
+        if (segment.index != null)
+        {
+            segment.index.add(pos, timestampMicros, TlogIndex.messageId(frame, offset));
+        }
+    }
+
+    public Path currentSegment()
+    {
+        return current.path;
+    }
+
+    // Frames dropped because no segment had room or the recorder was closed.
+    public long droppedFrames()
+    {
+        return droppedFrames.get();
+    }
+
+    // Segments that could not be created, mapped, finished or indexed.
+    public long segmentErrors()
+    {
+        return segmentErrors.get();
+    }
+
+    boolean hasSpare()
+    {
+        return spare != null;
+    }
+
+    // Swaps in the spare the flusher prepared; null when there is none yet, in which case the flusher is woken to
+    // retry and the caller keeps the current segment.
+    private Segment roll(long now)
+    {
+        Segment next = spare;
+        LockSupport.unpark(flusher);
+        if (next == null)
+        {
+            return null;
+        }
+        spare = null;
+        next.openedNanos = now;
+        retired.add(current);
+        current = next;
+        return next;
+    }
+
+    // Only the constructor and the flusher thread open segments, so segmentIndex needs no lock.
+    private Segment openSegment() throws IOException
+    {
+        // Zero-padded so segments opened in the same millisecond still sort in order by name.
+        Path path = directory.resolve(String.format("%s-%d-%06d.tlog", prefix, System.currentTimeMillis(), segmentIndex++));
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try
+        {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            map.order(ByteOrder.BIG_ENDIAN);
+            return new Segment(path, channel, map, indexed ? TlogIndex.builder() : null);
+        } catch (IOException | RuntimeException e)
+        {
+            channel.close();
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    private void flushLoop()
+    {
+        while (running)
+        {
+            prepareSpare();
+            LockSupport.parkNanos(this, flushIntervalNanos);
+            finishRetired();
+            current.map.force();
+        }
+    }
+
+    private void prepareSpare()
+    {
+        if (spare != null)
+        {
+            return;
+        }
+        try
+        {
+            spare = openSegment();
+        } catch (IOException | RuntimeException e)
+        {
+            segmentErrors.incrementAndGet();
+        }
+    }
+
+    private void finishRetired()
+    {
+        Segment segment;
+        while ((segment = retired.poll()) != null)
+        {
+            try
+            {
+                segment.finish();
+            } catch (RuntimeException e)
+            {
+                segmentErrors.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        synchronized (this)
+        {
+            if (!running)
+            {
+                return;
+            }
+            running = false;
+        }
+        LockSupport.unpark(flusher);
+        try
+        {
+            flusher.join();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finishRetired();
+        try
+        {
+            current.finish();
+        } catch (RuntimeException e)
+        {
+            segmentErrors.incrementAndGet();
+        }
+        Segment unused = spare;
+        spare = null;
+        if (unused != null)
+        {
+            unused.discard();
+        }
+    }
+
+    private static final class Segment
+    {
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer map;
+        final TlogIndex.Builder index;
+        // Set when the segment becomes current; roll intervals count from then, not from preallocation.
+        long openedNanos;
+        volatile int position;
+
+        Segment(Path path, FileChannel channel, MappedByteBuffer map, TlogIndex.Builder index)
+        {
+            this.path = path;
+            this.channel = channel;
+            this.map = map;
+            this.index = index;
+        }
+
+        void discard()
+        {
+            try
+            {
+                channel.close();
+                Files.deleteIfExists(path);
+            } catch (IOException ignore)
+            {
+            }
+        }
+
+        // Drops the preallocated tail; platforms that refuse to truncate a mapped file keep it zero-filled.
+        void finish()
+        {
+            map.force();
+            try
+            {
+                channel.truncate(position);
+            } catch (IOException ignore)
+            {
+            }
+            try
+            {
+                channel.close();
+            } catch (IOException ignore)
+            {
+            }
+            if (index != null)
+            {
+                index.build().save(TlogIndex.sidecar(path));
+            }
+        }
+    }
+
+    public static final class Builder
+    {
+        private final Path directory;
+        private String prefix = "mavlink";
+        private int segmentSize = 64 << 20;
+        private long rollIntervalMs;
+        private long flushIntervalMs = 1000;
+        private boolean index;
+
+        private Builder(Path directory)
+        {
+            if (directory == null)
+            {
+                throw new IllegalArgumentException("directory is required");
+            }
+            this.directory = directory;
+        }
+
+        public Builder prefix(String value)
+        {
+            this.prefix = value;
+            return this;
+        }
+
+        public Builder segmentSize(int value)
+        {
+            this.segmentSize = Math.max(1024, value);
+            return this;
+        }
+
+        public Builder rollIntervalMs(long value)
+        {
+            this.rollIntervalMs = Math.max(0, value);
+            return this;
+        }
+
+        public Builder flushIntervalMs(long value)
+        {
+            this.flushIntervalMs = Math.max(1, value);
+            return this;
+        }
+
+        public Builder index(boolean value)
+        {
+            this.index = value;
+            return this;
+        }
+
+        public TlogRecorder build()
+        {
+            return new TlogRecorder(this);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.chulise.mavlink.core.tlog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelLogScannerTest
+{
+    private static final long CHUNK = 4L * TlogReader.MAX_RECORD_LEN;
+
+    @Test
+    void testTlogChunksMatchSequentialScan(@TempDir Path dir) throws IOException
+    {
+        check(dir.resolve("garbage.tlog"), ParallelLogScanner.Format.TLOG);
+    }
+
+    @Test
+    void testRawChunksMatchSequentialScan(@TempDir Path dir) throws IOException
+    {
+        check(dir.resolve("garbage.raw"), ParallelLogScanner.Format.RAW);
+    }
+
+    private static void check(Path file, ParallelLogScanner.Format format) throws IOException
+    {
+        int count = 2000;
+        List<List<Long>> written = write(file, format, count);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            List<List<Long>> sequential = scan(file, format, 1L << 30, pool);
+            List<List<Long>> parallel = scan(file, format, CHUNK, pool);
+            assertTrue(Files.size(file) > 50 * CHUNK, "file should span many chunks");
+            assertEquals(written, sequential);
+            assertEquals(sequential, parallel);
+        } finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    private static List<List<Long>> scan(Path file, ParallelLogScanner.Format format, long chunkSize, ForkJoinPool pool)
+    {
+        ParallelLogScanner scanner = ParallelLogScanner.builder(TlogTestFrames.DIALECT)
+                .messageSpecProvider(TlogTestFrames.SPECS)
+                .format(format)
+                .chunkSize(chunkSize)
+                .pool(pool)
+                .build();
+        return scanner.scan(file, ArrayList::new, (acc, ts, packet) ->
+        {
+            acc.add(key(TlogTestFrames.index(packet), ts));
+        }, (left, right) ->
+        {
+            left.addAll(right);
+            return left;
+        });
+    }
+
+    // Writes frames [0, count) and puts a run of garbage across every chunk edge, so each edge lands in garbage,
+    // in a timestamp or in a frame. Returns the expected visits.
+    private static List<List<Long>> write(Path file, ParallelLogScanner.Format format, int count) throws IOException
+    {
+        boolean tlog = format == ParallelLogScanner.Format.TLOG;
+        Random random = new Random(42);
+        ByteBuffer out = ByteBuffer.allocate(count * 2 * TlogReader.MAX_RECORD_LEN).order(ByteOrder.LITTLE_ENDIAN);
+        List<List<Long>> expected = new ArrayList<>();
+        long edge = CHUNK;
+        int pos = 0;
+        for (int i = 0; i < count; i++)
+        {
+            if (pos + TlogReader.MAX_RECORD_LEN > edge)
+            {
+                int run = 1 + random.nextInt(48);
+                int at = (int) edge - random.nextInt(run + 1);
+                while (pos < at)
+                {
+                    out.put(pos++, garbage(random));
+                }
+                for (int g = 0; g < run; g++)
+                {
+                    out.put(pos++, garbage(random));
+                }
+                edge += CHUNK;
+            }
+            if (tlog)
+            {
+                out.order(ByteOrder.BIG_ENDIAN).putLong(pos, TlogTestFrames.timestamp(i));
+                out.order(ByteOrder.LITTLE_ENDIAN);
+                pos += TlogRecorder.TIMESTAMP_LEN;
+            }
+            pos += TlogTestFrames.frame(out, pos, i);
+            expected.add(key(i, tlog ? TlogTestFrames.timestamp(i) : -1L));
+        }
+        Files.write(file, Arrays.copyOf(out.array(), pos));
+        return expected;
+    }
+
+    private static byte garbage(Random random)
+    {
+        // Keeps clear of the v1/v2 magic bytes, which the strict parser would try as frame starts anyway.
+        int b = random.nextInt(256);
+        return (byte) (b == 0xFD || b == 0xFE ? 0 : b);
+    }
+
+    private static List<Long> key(int index, long timestampMicros)
+    {
+        return List.of((long) index, timestampMicros);
+    }
+}
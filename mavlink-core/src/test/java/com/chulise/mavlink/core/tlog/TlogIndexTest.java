@@ -0,0 +1,103 @@
+package com.chulise.mavlink.core.tlog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TlogIndexTest
+{
+
+    @Test
+    void testIndexThenLookUp(@TempDir Path dir) throws Exception
+    {
+        int count = 1000;
+        Path file = TlogTestFrames.writeTlog(dir.resolve("a.tlog"), count);
+        try (TlogReader reader = TlogReader.open(file))
+        {
+            // A short checkpoint interval makes seeks land between checkpoints.
+            TlogIndex.Builder builder = TlogIndex.builder(7);
+            TlogReader.Cursor scan = reader.cursor();
+            while (scan.next())
+            {
+                builder.add(scan.position(), scan.timestampMicros(), TlogIndex.messageId(scan.buffer(), scan.frameOffset()));
+            }
+            TlogIndex built = builder.build();
+            built.save(TlogIndex.sidecar(file));
+            TlogIndex loaded = TlogIndex.load(TlogIndex.sidecar(file));
+
+            assertEquals(count, loaded.recordCount());
+            assertArrayEquals(new int[]{1, 2, 300}, loaded.messageIds());
+            assertEquals(334, loaded.count(1));
+            assertEquals(333, loaded.count(300));
+            assertEquals(0, loaded.count(99));
+            assertEquals(TlogTestFrames.timestamp(0), loaded.firstTimestampMicros());
+            reader.index(loaded);
+
+            for (int from : new int[]{0, 1, 6, 7, 8, 500, 998, 999})
+            {
+                TlogReader.Cursor cursor = reader.seek(TlogTestFrames.timestamp(from));
+                assertEquals(true, cursor.next());
+                assertEquals(from, TlogTestFrames.index(cursor.packet()), "seek to " + from);
+
+                assertEquals(expected(from, count, 300), indexes(reader.seek(TlogTestFrames.timestamp(from), 300)));
+                assertEquals(expected(from, count, 1, 2), indexes(reader.seek(TlogTestFrames.timestamp(from), 2, 1)));
+            }
+            assertEquals(expected(0, count, 1), indexes(reader.seek(Long.MIN_VALUE, 1, 99)));
+        }
+    }
+
+    @Test
+    void testPostingsWithLargeDeltas(@TempDir Path dir)
+    {
+        // Positions far apart need multi-byte varints; the largest delta needs all ten bytes of a long.
+        long[] positions = {0, 1, 127, 128, 16_383, 16_384, 1L << 31, (1L << 40) + 5, Long.MAX_VALUE - 1};
+        TlogIndex.Builder builder = TlogIndex.builder();
+        for (int i = 0; i < positions.length; i++)
+        {
+            builder.add(positions[i], i, 42);
+        }
+        Path sidecar = dir.resolve("big.tlog.idx");
+        builder.build().save(sidecar);
+        TlogIndex loaded = TlogIndex.load(sidecar);
+
+        TlogIndex.PositionIterator it = loaded.positions(new int[]{42}, 0);
+        for (long position : positions)
+        {
+            assertEquals(position, it.next());
+        }
+        assertEquals(-1, it.next());
+
+        it = loaded.positions(new int[]{42}, 16_384);
+        assertEquals(16_384, it.next());
+    }
+
+    private static List<Integer> expected(int from, int count, int... ids)
+    {
+        List<Integer> out = new ArrayList<>();
+        for (int i = from; i < count; i++)
+        {
+            for (int id : ids)
+            {
+                if (TlogTestFrames.IDS[TlogTestFrames.type(i)] == id)
+                {
+                    out.add(i);
+                }
+            }
+        }
+        return out;
+    }
+
+    private static List<Integer> indexes(TlogReader.Cursor cursor)
+    {
+        List<Integer> out = new ArrayList<>();
+        while (cursor.next())
+        {
+            out.add(TlogTestFrames.index(cursor.packet()));
+        }
+        return out;
+    }
+}
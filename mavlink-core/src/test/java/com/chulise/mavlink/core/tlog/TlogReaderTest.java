@@ -0,0 +1,90 @@
+package com.chulise.mavlink.core.tlog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TlogReaderTest
+{
+
+    @Test
+    void testRecordsStraddlingRegionBoundaries(@TempDir Path dir) throws Exception
+    {
+        int count = 500;
+        Path file = TlogTestFrames.writeTlog(dir.resolve("a.tlog"), count);
+
+        List<Long> expected;
+        try (TlogReader reader = TlogReader.open(file))
+        {
+            expected = positions(reader, count);
+        }
+        // The smallest region is exactly one maximal record, so almost every record crosses into the overlap.
+        for (long region : new long[]{TlogReader.MAX_RECORD_LEN, 1000, 4096})
+        {
+            try (TlogReader reader = TlogReader.open(file, region))
+            {
+                assertEquals(expected, positions(reader, count), "region size " + region);
+            }
+        }
+    }
+
+    @Test
+    void testCursorResumesAtPosition(@TempDir Path dir) throws Exception
+    {
+        Path file = TlogTestFrames.writeTlog(dir.resolve("a.tlog"), 50);
+        try (TlogReader reader = TlogReader.open(file, TlogReader.MAX_RECORD_LEN))
+        {
+            TlogReader.Cursor cursor = reader.cursor();
+            long at = -1;
+            for (int i = 0; i <= 20; i++)
+            {
+                cursor.next();
+                at = cursor.position();
+            }
+            TlogReader.Cursor resumed = reader.cursor(at);
+            for (int i = 20; i < 50; i++)
+            {
+                assertTrue(resumed.next());
+                assertEquals(i, TlogTestFrames.index(resumed.packet()));
+                assertEquals(TlogTestFrames.timestamp(i), resumed.timestampMicros());
+            }
+            assertFalse(resumed.next());
+        }
+    }
+
+    @Test
+    void testZeroFilledTailEndsTheFile(@TempDir Path dir) throws Exception
+    {
+        Path file = TlogTestFrames.writeTlog(dir.resolve("a.tlog"), 10);
+        // A segment that could not be truncated keeps its preallocated zeros.
+        Files.write(file, new byte[4096], StandardOpenOption.APPEND);
+        try (TlogReader reader = TlogReader.open(file))
+        {
+            assertEquals(10, positions(reader, 10).size());
+        }
+    }
+
+    // Positions of all records, checking each decodes to the frame written in its place.
+    private static List<Long> positions(TlogReader reader, int count)
+    {
+        List<Long> positions = new ArrayList<>();
+        TlogReader.Cursor cursor = reader.cursor();
+        while (cursor.next())
+        {
+            int index = positions.size();
+            assertEquals(index, TlogTestFrames.index(cursor.packet()));
+            assertEquals(TlogTestFrames.IDS[TlogTestFrames.type(index)], cursor.packet().getMessageId());
+            assertEquals(TlogTestFrames.timestamp(index), cursor.timestampMicros());
+            positions.add(cursor.position());
+        }
+        assertEquals(count, positions.size());
+        return positions;
+    }
+}
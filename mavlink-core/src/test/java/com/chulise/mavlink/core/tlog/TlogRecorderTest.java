@@ -0,0 +1,130 @@
+package com.chulise.mavlink.core.tlog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TlogRecorderTest
+{
+
+    @Test
+    void testRecordThenReadAcrossRolls(@TempDir Path dir) throws Exception
+    {
+        int count = 300;
+        ByteBuffer frame = ByteBuffer.allocateDirect(TlogReader.MAX_RECORD_LEN).order(ByteOrder.LITTLE_ENDIAN);
+        try (TlogRecorder recorder = TlogRecorder.builder(dir).segmentSize(1024).flushIntervalMs(1).index(true).build())
+        {
+            for (int i = 0; i < count; i++)
+            {
+                // Waits until the flusher has mapped the spare for the next roll.
+                awaitSpare(recorder);
+                int length = TlogTestFrames.frame(frame, 0, i);
+                recorder.append(TlogTestFrames.timestamp(i), frame, 0, length);
+            }
+            assertEquals(0, recorder.droppedFrames(), "a spare segment should always be ready");
+            assertEquals(0, recorder.segmentErrors());
+        }
+
+        List<Path> segments = segments(dir);
+        assertTrue(segments.size() > 10, "1 KiB segments should roll many times: " + segments.size());
+        int next = 0;
+        for (Path segment : segments)
+        {
+            assertTrue(Files.size(segment) > 0, "unused spare left behind: " + segment);
+            assertTrue(Files.exists(TlogIndex.sidecar(segment)), "missing index for " + segment);
+            try (TlogReader reader = TlogReader.open(segment))
+            {
+                TlogReader.Cursor cursor = reader.cursor();
+                while (cursor.next())
+                {
+                    assertEquals(TlogTestFrames.timestamp(next), cursor.timestampMicros());
+                    assertEquals(next, TlogTestFrames.index(cursor.packet()));
+                    next++;
+                }
+                assertEquals(reader.index().recordCount(), TlogIndex.build(reader).recordCount());
+            }
+        }
+        assertEquals(count, next);
+    }
+
+    @Test
+    void testAppendAfterCloseIsDropped(@TempDir Path dir)
+    {
+        ByteBuffer frame = ByteBuffer.allocate(TlogReader.MAX_RECORD_LEN).order(ByteOrder.LITTLE_ENDIAN);
+        int length = TlogTestFrames.frame(frame, 0, 0);
+        TlogRecorder recorder = TlogRecorder.builder(dir).build();
+        recorder.close();
+        recorder.append(frame, 0, length);
+        assertEquals(1, recorder.droppedFrames());
+    }
+
+    @Test
+    void testMissingSpareDropsInsteadOfThrowing(@TempDir Path dir) throws Exception
+    {
+        Path logs = dir.resolve("logs");
+        Path moved = dir.resolve("moved");
+        ByteBuffer frame = ByteBuffer.allocate(TlogReader.MAX_RECORD_LEN).order(ByteOrder.LITTLE_ENDIAN);
+        int count = 100;
+        TlogRecorder recorder = TlogRecorder.builder(logs).segmentSize(1024).flushIntervalMs(60_000).build();
+        awaitSpare(recorder);
+        // The mapped segments stay usable, but no further segment can be created where the recorder looks.
+        Files.move(logs, moved);
+        for (int i = 0; i < count; i++)
+        {
+            recorder.append(TlogTestFrames.timestamp(i), frame, 0, TlogTestFrames.frame(frame, 0, i));
+        }
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (recorder.segmentErrors() == 0 && System.nanoTime() < deadline)
+        {
+            Thread.sleep(1);
+        }
+        recorder.close();
+        assertTrue(recorder.droppedFrames() > 0, "frames past the last segment should be dropped");
+        assertTrue(recorder.segmentErrors() > 0, "the failed spare should be counted");
+
+        // A smaller frame can still fit after a larger one was dropped, so indexes only have to increase.
+        int recorded = 0;
+        int last = -1;
+        for (Path segment : segments(moved))
+        {
+            try (TlogReader reader = TlogReader.open(segment))
+            {
+                TlogReader.Cursor cursor = reader.cursor();
+                while (cursor.next())
+                {
+                    int index = TlogTestFrames.index(cursor.packet());
+                    assertTrue(index > last, "out of order: " + index + " after " + last);
+                    last = index;
+                    recorded++;
+                }
+            }
+        }
+        assertEquals(count, recorded + recorder.droppedFrames());
+    }
+
+    private static void awaitSpare(TlogRecorder recorder) throws Exception
+    {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!recorder.hasSpare())
+        {
+            assertTrue(System.nanoTime() < deadline, "spare segment never appeared");
+            Thread.sleep(1);
+        }
+    }
+
+    private static List<Path> segments(Path dir) throws IOException
+    {
+        try (Stream<Path> files = Files.list(dir))
+        {
+            return files.filter(p -> p.toString().endsWith(".tlog")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.chulise.mavlink.core.tlog;
+
+import com.chulise.mavlink.core.MavlinkDialect;
+import com.chulise.mavlink.core.MavlinkPacketView;
+import com.chulise.mavlink.core.MavlinkPacketWriter;
+import com.chulise.mavlink.core.MavlinkView;
+import com.chulise.mavlink.core.MessageSpec;
+import com.chulise.mavlink.core.MessageSpecProvider;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Synthetic frames for the tlog tests: three message types of different lengths, each carrying its index in the
+// first four payload bytes so decoded frames can be matched back to what was written.
+final class TlogTestFrames
+{
+    static final int[] IDS = {1, 300, 2};
+    static final int[] LENGTHS = {10, 40, 200};
+    static final int[] CRCS = {11, 77, 23};
+
+    static final MavlinkDialect DIALECT = new MavlinkDialect()
+    {
+        @Override
+        public MavlinkView resolve(int messageId)
+        {
+            return null;
+        }
+
+        @Override
+        public boolean supports(int messageId)
+        {
+            return spec(messageId) != null;
+        }
+    };
+
+    static final MessageSpecProvider SPECS = TlogTestFrames::spec;
+
+    private TlogTestFrames()
+    {
+    }
+
+    static MessageSpec spec(int messageId)
+    {
+        for (int i = 0; i < IDS.length; i++)
+        {
+            if (IDS[i] == messageId)
+            {
+                return new MessageSpec(CRCS[i], LENGTHS[i], LENGTHS[i]);
+            }
+        }
+        return null;
+    }
+
+    static int type(int index)
+    {
+        return index % IDS.length;
+    }
+
+    static long timestamp(int index)
+    {
+        return 1_700_000_000_000_000L + index * 1000L;
+    }
+
+    // Writes frame number index at offset and returns its length.
+    static int frame(ByteBuffer out, int offset, int index)
+    {
+        int type = type(index);
+        ByteBuffer payload = ByteBuffer.allocate(LENGTHS[type]).order(ByteOrder.LITTLE_ENDIAN);
+        payload.putInt(0, index);
+        for (int i = 4; i < LENGTHS[type]; i++)
+        {
+            payload.put(i, (byte) (index + i));
+        }
+        return MavlinkPacketWriter.writeV2(out, offset, index & 0xFF, 1, 1, IDS[type], CRCS[type], payload, 0,
+                LENGTHS[type], LENGTHS[type], false, 0, 0, null, 0, 0);
+    }
+
+    static int index(MavlinkPacketView packet)
+    {
+        return packet.getBuffer().getInt(packet.getPayloadOffset());
+    }
+
+    // Tlog records for frames [0, count), in order.
+    static Path writeTlog(Path file, int count) throws IOException
+    {
+        ByteBuffer out = ByteBuffer.allocate(count * TlogReader.MAX_RECORD_LEN).order(ByteOrder.LITTLE_ENDIAN);
+        int pos = 0;
+        for (int i = 0; i < count; i++)
+        {
+            out.order(ByteOrder.BIG_ENDIAN).putLong(pos, timestamp(i));
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            pos += TlogRecorder.TIMESTAMP_LEN;
+            pos += frame(out, pos, i);
+        }
+        Files.write(file, Arrays.copyOf(out.array(), pos));
+        return file;
+    }
+}
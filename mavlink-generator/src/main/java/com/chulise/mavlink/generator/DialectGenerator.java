@@ -17,6 +17,7 @@ import java.util.Set;
 public class DialectGenerator
 {
     private final Path outputDir;
+    private final LayoutEngine layoutEngine = new LayoutEngine();
 
     public DialectGenerator(Path outputDir)
     {
@@ -128,6 +129,9 @@ public class DialectGenerator
                 .addParameter(int.class, "messageId")
                 .addStatement("return resolve(messageId) != null");
 
+        MethodSpec targetSystemMethod = buildTargetOffsetMethod("targetSystemOffset", "target_system", messages);
+        MethodSpec targetComponentMethod = buildTargetOffsetMethod("targetComponentOffset", "target_component", messages);
+
         FieldSpec viewPoolField = FieldSpec.builder(
                         ParameterizedTypeName.get(ClassName.get(ThreadLocal.class), poolType),
                         "VIEW_POOL",
@@ -150,6 +154,8 @@ public class DialectGenerator
                 .addMethod(acceptNewMethod.build())
                 .addMethod(acceptFastMethod.build())
                 .addMethod(supportsMethod.build())
+                .addMethod(targetSystemMethod)
+                .addMethod(targetComponentMethod)
                 .build();
 
         try
@@ -164,6 +170,35 @@ public class DialectGenerator
         }
     }
 
+    private MethodSpec buildTargetOffsetMethod(String methodName, String fieldName, List<MessageDef> messages)
+    {
+        MethodSpec.Builder method = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(Override.class)
+                .returns(int.class)
+                .addParameter(int.class, "messageId");
+
+        method.beginControlFlow("switch (messageId)");
+
+        Set<Integer> seenIds = new HashSet<>();
+        for (MessageDef msg : messages)
+        {
+            if (!seenIds.add(msg.id()))
+            {
+                continue;
+            }
+            Integer offset = layoutEngine.calculate(msg).offsets().get(fieldName);
+            if (offset != null)
+            {
+                method.addStatement("case $L: return $L", msg.id(), offset);
+            }
+        }
+
+        method.addStatement("default: return -1");
+        method.endControlFlow();
+        return method.build();
+    }
+
     private TypeSpec buildViewPoolType(List<MessageDef> messages, String packageName, Map<Integer, String> classNamesById)
     {
         TypeSpec.Builder poolBuilder = TypeSpec.classBuilder("ViewPool")
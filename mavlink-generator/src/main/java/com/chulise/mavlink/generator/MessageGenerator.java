@@ -1,6 +1,7 @@
 package com.chulise.mavlink.generator;
 
 import com.chulise.mavlink.core.MavlinkView;
+import com.chulise.mavlink.core.MavlinkViewFactory;
 import com.chulise.mavlink.generator.model.FieldDef;
 import com.chulise.mavlink.generator.model.MessageDef;
 import com.squareup.javapoet.*;
@@ -37,6 +38,7 @@ public class MessageGenerator
         classBuilder.addField(buildConst("CRC", layout.crcExtra()));
         classBuilder.addField(buildConst("LENGTH_V1", layout.lengthV1()));
         classBuilder.addField(buildConst("LENGTH_V2", layout.lengthV2()));
+        classBuilder.addField(buildFactory(className));
 
         for (FieldDef field : msg.fields())
         {
@@ -81,6 +83,15 @@ public class MessageGenerator
                 .build();
     }
 
+    private FieldSpec buildFactory(String className)
+    {
+        ClassName self = ClassName.get("com.chulise.mavlink.messages", className);
+        return FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(MavlinkViewFactory.class), self), "FACTORY")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$T::new", self)
+                .build();
+    }
+
     private void addOverrides(TypeSpec.Builder builder)
     {
         builder.addMethod(buildOverride("getMessageId", "ID"));
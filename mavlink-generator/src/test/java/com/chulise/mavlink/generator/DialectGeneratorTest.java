@@ -0,0 +1,67 @@
+package com.chulise.mavlink.generator;
+
+import com.chulise.mavlink.generator.model.FieldDef;
+import com.chulise.mavlink.generator.model.MessageDef;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DialectGeneratorTest
+{
+
+    @Test
+    void testTargetOffsets(@TempDir Path dir) throws IOException
+    {
+        MessageDef heartbeat = new MessageDef(0, "HEARTBEAT", "desc", List.of(
+                new FieldDef("uint8_t", "type", "", false, 1),
+                new FieldDef("uint8_t", "autopilot", "", false, 1),
+                new FieldDef("uint8_t", "base_mode", "", false, 1),
+                new FieldDef("uint32_t", "custom_mode", "", false, 1),
+                new FieldDef("uint8_t", "system_status", "", false, 1),
+                new FieldDef("uint8_t_mavlink_version", "mavlink_version", "", false, 1)
+        ));
+        MessageDef setMode = new MessageDef(11, "SET_MODE", "desc", List.of(
+                new FieldDef("uint8_t", "target_system", "", false, 1),
+                new FieldDef("uint8_t", "base_mode", "", false, 1),
+                new FieldDef("uint32_t", "custom_mode", "", false, 1)
+        ));
+        MessageDef paramRequestRead = new MessageDef(20, "PARAM_REQUEST_READ", "desc", List.of(
+                new FieldDef("uint8_t", "target_system", "", false, 1),
+                new FieldDef("uint8_t", "target_component", "", false, 1),
+                new FieldDef("char", "param_id", "", false, 16),
+                new FieldDef("int16_t", "param_index", "", false, 1)
+        ));
+
+        new DialectGenerator(dir).generate("test", List.of(heartbeat, setMode, paramRequestRead),
+                Map.of(0, "HeartbeatView", 11, "SetModeView", 20, "ParamRequestReadView"));
+
+        String source = Files.readString(dir.resolve("com/chulise/mavlink/messages/TestDialect.java"));
+        String system = method(source, "targetSystemOffset");
+        String component = method(source, "targetComponentOffset");
+
+        // custom_mode sorts first, so target_system follows it at 4; param_index sorts before the uint8 fields.
+        assertTrue(system.contains("case 11: return 4;"), system);
+        assertTrue(system.contains("case 20: return 2;"), system);
+        assertTrue(component.contains("case 20: return 3;"), component);
+        assertFalse(system.contains("case 0:"), "HEARTBEAT has no target_system");
+        assertFalse(component.contains("case 0:"), "HEARTBEAT has no target_component");
+        assertFalse(component.contains("case 11:"), "SET_MODE has no target_component");
+        assertTrue(system.contains("default: return -1;"), system);
+        assertTrue(component.contains("default: return -1;"), component);
+    }
+
+    private static String method(String source, String name)
+    {
+        int start = source.indexOf("public int " + name + "(");
+        assertTrue(start >= 0, name + " not generated");
+        int end = source.indexOf("\n    }\n", start);
+        assertTrue(end > start, name + " has no end");
+        return source.substring(start, end);
+    }
+}
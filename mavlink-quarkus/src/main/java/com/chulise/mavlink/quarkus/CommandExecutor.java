@@ -0,0 +1,323 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.messages.CommandAckView;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class CommandExecutor
+{
+    private static final int MAV_RESULT_IN_PROGRESS = 5;
+
+    private final MavlinkClient client;
+    private final int maxAttempts;
+    private final long ackTimeoutMs;
+    private final long maxAckTimeoutMs;
+    private final double backoffMultiplier;
+    private final long inProgressTimeoutMs;
+    private final int maxInFlightPerTarget;
+    private final ConcurrentHashMap<Integer, Target> targets = new ConcurrentHashMap<>();
+
+    private CommandExecutor(Builder builder)
+    {
+        this.client = builder.client;
+        this.maxAttempts = builder.maxAttempts;
+        this.ackTimeoutMs = builder.ackTimeoutMs;
+        this.maxAckTimeoutMs = Math.max(builder.ackTimeoutMs, builder.maxAckTimeoutMs);
+        this.backoffMultiplier = builder.backoffMultiplier;
+        this.inProgressTimeoutMs = builder.inProgressTimeoutMs;
+        this.maxInFlightPerTarget = builder.maxInFlightPerTarget;
+    }
+
+    public static Builder builder(MavlinkClient client)
+    {
+        return new Builder(client);
+    }
+
+    @FunctionalInterface
+    public interface CommandWriter
+    {
+        int write(ByteBuffer buffer, int offset, int attempt);
+    }
+
+    @FunctionalInterface
+    public interface ProgressListener
+    {
+        void onProgress(int progress);
+    }
+
+    public CompletableFuture<CommandAckView> execute(int targetSystem,
+                                                     int targetComponent,
+                                                     int command,
+                                                     CommandWriter writer)
+    {
+        return execute(targetSystem, targetComponent, command, writer, null);
+    }
+
+    public CompletableFuture<CommandAckView> execute(int targetSystem,
+                                                     int targetComponent,
+                                                     int command,
+                                                     CommandWriter writer,
+                                                     ProgressListener listener)
+    {
+        int key = ((targetSystem & 0xFF) << 8) | (targetComponent & 0xFF);
+        Target target = targets.computeIfAbsent(key, k -> new Target());
+        Command cmd = new Command(target, targetSystem & 0xFF, targetComponent & 0xFF, command, writer, listener);
+
+        boolean start;
+        synchronized (target)
+        {
+            start = target.active.size() < maxInFlightPerTarget && !target.active.contains(command);
+            if (start)
+            {
+                target.active.addLast(command);
+            } else
+            {
+                target.queue.addLast(cmd);
+            }
+        }
+        if (start)
+        {
+            send(cmd);
+        }
+        return cmd.result;
+    }
+
+    public int inFlight(int targetSystem, int targetComponent)
+    {
+        Target target = targets.get(((targetSystem & 0xFF) << 8) | (targetComponent & 0xFF));
+        if (target == null)
+        {
+            return 0;
+        }
+        synchronized (target)
+        {
+            return target.active.size();
+        }
+    }
+
+    private void send(Command cmd)
+    {
+        if (cmd.result.isDone())
+        {
+            finish(cmd);
+            return;
+        }
+        int attempt = cmd.attempt++;
+        CompletableFuture<CommandAckView> ack;
+        try
+        {
+            ack = client.request(CommandAckView.FACTORY, CommandAckView.ID, options(cmd, attemptTimeout(attempt)),
+                    (buf, off) -> cmd.writer.write(buf, off, attempt));
+        } catch (RuntimeException e)
+        {
+            fail(cmd, e);
+            return;
+        }
+        // Timeouts complete on the shared timer thread; retries and the next queued command must not send from there.
+        ack.whenCompleteAsync((view, error) -> onAck(cmd, view, error), client.sender());
+    }
+
+    private void awaitProgress(Command cmd)
+    {
+        if (cmd.result.isDone())
+        {
+            finish(cmd);
+            return;
+        }
+        client.await(CommandAckView.FACTORY, CommandAckView.ID, options(cmd, inProgressTimeoutMs))
+                .whenCompleteAsync((view, error) -> onAck(cmd, view, error), client.sender());
+    }
+
+    private void onAck(Command cmd, CommandAckView view, Throwable error)
+    {
+        if (error != null)
+        {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof MavlinkTimeoutException && !cmd.inProgress && cmd.attempt < maxAttempts)
+            {
+                send(cmd);
+            } else if (cause instanceof MavlinkTimeoutException)
+            {
+                fail(cmd, new MavlinkTimeoutException("command " + cmd.command + " timeout after "
+                        + cmd.attempt + " attempts"));
+            } else
+            {
+                fail(cmd, cause);
+            }
+            return;
+        }
+
+        if (view.result() == MAV_RESULT_IN_PROGRESS)
+        {
+            cmd.inProgress = true;
+            if (cmd.listener != null)
+            {
+                try
+                {
+                    cmd.listener.onProgress(view.progress());
+                } catch (RuntimeException ignored)
+                {
+                }
+            }
+            awaitProgress(cmd);
+            return;
+        }
+
+        cmd.result.complete(view);
+        finish(cmd);
+    }
+
+    private void fail(Command cmd, Throwable error)
+    {
+        cmd.result.completeExceptionally(error);
+        finish(cmd);
+    }
+
+    private void finish(Command cmd)
+    {
+        Target target = cmd.target;
+        Command next = null;
+        synchronized (target)
+        {
+            target.active.removeFirstOccurrence(cmd.command);
+            Iterator<Command> it = target.queue.iterator();
+            while (it.hasNext())
+            {
+                Command queued = it.next();
+                if (queued.result.isDone())
+                {
+                    it.remove();
+                    continue;
+                }
+                if (!target.active.contains(queued.command))
+                {
+                    it.remove();
+                    target.active.addLast(queued.command);
+                    next = queued;
+                    break;
+                }
+            }
+        }
+        if (next != null)
+        {
+            send(next);
+        }
+    }
+
+    private MavlinkRequestOptions options(Command cmd, long timeoutMs)
+    {
+        return MavlinkRequestOptions.builder()
+                .timeoutMs(timeoutMs)
+                .expectedSysId(cmd.targetSystem == 0 ? -1 : cmd.targetSystem)
+                .expectedCompId(cmd.targetComponent == 0 ? -1 : cmd.targetComponent)
+                .matcher(cmd.matcher)
+                .build();
+    }
+
+    private long attemptTimeout(int attempt)
+    {
+        double timeout = ackTimeoutMs * Math.pow(backoffMultiplier, attempt);
+        return (long) Math.min(timeout, maxAckTimeoutMs);
+    }
+
+    private static final class Target
+    {
+        final ArrayDeque<Command> queue = new ArrayDeque<>();
+        final ArrayDeque<Integer> active = new ArrayDeque<>();
+    }
+
+    private static final class Command
+    {
+        final Target target;
+        final int targetSystem;
+        final int targetComponent;
+        final int command;
+        final CommandWriter writer;
+        final ProgressListener listener;
+        final MavlinkResponseMatcher matcher;
+        final CompletableFuture<CommandAckView> result = new CompletableFuture<>();
+        volatile int attempt;
+        volatile boolean inProgress;
+
+        Command(Target target,
+                int targetSystem,
+                int targetComponent,
+                int command,
+                CommandWriter writer,
+                ProgressListener listener)
+        {
+            this.target = target;
+            this.targetSystem = targetSystem;
+            this.targetComponent = targetComponent;
+            this.command = command;
+            this.writer = writer;
+            this.listener = listener;
+            this.matcher = MavlinkResponseMatchers.commandAck(command);
+        }
+    }
+
+    public static final class Builder
+    {
+        private final MavlinkClient client;
+        private int maxAttempts = 5;
+        private long ackTimeoutMs = 1000;
+        private long maxAckTimeoutMs = 5000;
+        private double backoffMultiplier = 1.5;
+        private long inProgressTimeoutMs = 10_000;
+        private int maxInFlightPerTarget = 4;
+
+        private Builder(MavlinkClient client)
+        {
+            if (client == null)
+            {
+                throw new IllegalArgumentException("client is null");
+            }
+            this.client = client;
+        }
+
+        public Builder maxAttempts(int value)
+        {
+            this.maxAttempts = Math.max(1, value);
+            return this;
+        }
+
+        public Builder ackTimeoutMs(long value)
+        {
+            this.ackTimeoutMs = Math.max(1, value);
+            return this;
+        }
+
+        public Builder maxAckTimeoutMs(long value)
+        {
+            this.maxAckTimeoutMs = Math.max(1, value);
+            return this;
+        }
+
+        public Builder backoffMultiplier(double value)
+        {
+            this.backoffMultiplier = Math.max(1.0, value);
+            return this;
+        }
+
+        public Builder inProgressTimeoutMs(long value)
+        {
+            this.inProgressTimeoutMs = Math.max(1, value);
+            return this;
+        }
+
+        public Builder maxInFlightPerTarget(int value)
+        {
+            this.maxInFlightPerTarget = Math.max(1, value);
+            return this;
+        }
+
+        public CommandExecutor build()
+        {
+            return new CommandExecutor(this);
+        }
+    }
+}
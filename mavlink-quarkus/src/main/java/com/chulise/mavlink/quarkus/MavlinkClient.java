@@ -2,13 +2,21 @@ package com.chulise.mavlink.quarkus;
 
 import com.chulise.mavlink.core.MavlinkPacketWriter;
 import com.chulise.mavlink.core.MavlinkView;
+import com.chulise.mavlink.core.MavlinkViewFactory;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public final class MavlinkClient
 {
     private static final int MAX_PACKET_LEN_V2 = 10 + 255 + 2 + 13;
+    private static final long SIGNING_EPOCH_MILLIS = 1_420_070_400_000L;
 
     private final String id;
     private final MavlinkTransport transport;
@@ -16,20 +24,43 @@ public final class MavlinkClient
     private final MavlinkRequestManager requestManager;
     private final ThreadLocal<ByteBuffer> writeBuffer;
     private final MavlinkRequestOptions defaultRequestOptions;
+    private final MavlinkListenerStats stats;
+    private final MavlinkDispatcher dispatcher;
+    // Shared by every frame this client encodes itself, so one link carries a single sequence.
+    private final AtomicInteger sequence = new AtomicInteger();
+    // Last signature timestamp handed out; signing receivers reject any timestamp not above the previous one.
+    private final AtomicLong signatureClock = new AtomicLong();
+    // Follow-up sends (retries, retransmits) that would otherwise run on the shared timer thread, where one blocking
+    // transport write stalls every listener's timeouts. The thread exits after a second without work.
+    private final ThreadPoolExecutor sender;
+    private volatile TelemetryStateCache stateCache;
+    private volatile TelemetryHistory history;
+    private volatile MavlinkSendQueue sendQueue;
 
     MavlinkClient(String id,
                   MavlinkTransport transport,
                   MavlinkPacketWriter.Encoder encoder,
                   MavlinkRequestManager requestManager,
-                  MavlinkRequestOptions defaultRequestOptions)
+                  MavlinkRequestOptions defaultRequestOptions,
+                  MavlinkListenerStats stats,
+                  MavlinkDispatcher dispatcher)
     {
         this.id = id;
         this.transport = transport;
         this.encoder = encoder;
         this.requestManager = requestManager;
         this.defaultRequestOptions = defaultRequestOptions;
+        this.stats = stats;
+        this.dispatcher = dispatcher;
         this.writeBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(MAX_PACKET_LEN_V2)
                 .order(ByteOrder.LITTLE_ENDIAN));
+        this.sender = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r ->
+        {
+            Thread thread = new Thread(r, "mavlink-send-" + id);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sender.allowCoreThreadTimeOut(true);
     }
 
     public String id()
@@ -37,11 +68,101 @@ public final class MavlinkClient
         return id;
     }
 
+    // The system and component ids this client sends as.
+    public int sysId()
+    {
+        return encoder.sysId();
+    }
+
+    public int compId()
+    {
+        return encoder.compId();
+    }
+
+    // On a signed link, pass signatureTimestamp() to writeV2 rather than a clock reading of your own: timestamps
+    // must strictly increase across every frame this client signs.
     public MavlinkPacketWriter.Encoder encoder()
     {
         return encoder;
     }
 
+    // Encodes a v2 frame whose payload is already at off + HEADER_LEN_V2.
+    int writeFrame(ByteBuffer buf, int off, int messageId, int crc, int lengthV2, int lengthV1)
+    {
+        return encoder.writeV2(buf, off, sequence.getAndIncrement() & 0xFF, messageId, crc, lengthV2, lengthV1,
+                signatureTimestamp());
+    }
+
+    // MAVLink signing time in 10 us units since 2015-01-01, never repeated: frames signed within the same clock
+    // unit get consecutive values, so a burst runs slightly ahead of the wall clock.
+    public long signatureTimestamp()
+    {
+        long now = (System.currentTimeMillis() - SIGNING_EPOCH_MILLIS) * 100;
+        while (true)
+        {
+            long last = signatureClock.get();
+            long next = Math.max(now, last + 1);
+            if (signatureClock.compareAndSet(last, next))
+            {
+                return next;
+            }
+        }
+    }
+
+    Executor sender()
+    {
+        return sender;
+    }
+
+    MavlinkListenerStats stats()
+    {
+        return stats;
+    }
+
+    MavlinkDispatcher dispatcher()
+    {
+        return dispatcher;
+    }
+
+    MavlinkTimer timer()
+    {
+        if (requestManager == null)
+        {
+            throw new IllegalStateException("request manager not available");
+        }
+        return requestManager.timer();
+    }
+
+    public TelemetryStateCache stateCache()
+    {
+        TelemetryStateCache cache = stateCache;
+        if (cache == null)
+        {
+            throw new IllegalStateException("state cache is not enabled for listener " + id);
+        }
+        return cache;
+    }
+
+    void stateCache(TelemetryStateCache cache)
+    {
+        this.stateCache = cache;
+    }
+
+    public TelemetryHistory history()
+    {
+        TelemetryHistory h = history;
+        if (h == null)
+        {
+            throw new IllegalStateException("history is not enabled for listener " + id);
+        }
+        return h;
+    }
+
+    void history(TelemetryHistory value)
+    {
+        this.history = value;
+    }
+
     @FunctionalInterface
     public interface PacketWriter
     {
@@ -51,37 +172,167 @@ public final class MavlinkClient
     public int send(PacketWriter writer)
     {
         ByteBuffer buffer = writeBuffer.get();
+        int written = write(buffer, writer);
+        transport.send(buffer, 0, written);
+        countOut(written, 1);
+        return written;
+    }
+
+    public int sendTo(int sysId, PacketWriter writer)
+    {
+        return sendTo(sysId, -1, writer);
+    }
+
+    public int sendTo(int sysId, int compId, PacketWriter writer)
+    {
+        ByteBuffer buffer = writeBuffer.get();
+        int written = write(buffer, writer);
+        transport.sendTo(sysId, compId, buffer, 0, written);
+        countOut(written, 1);
+        return written;
+    }
+
+    // Encodes on the caller thread into the listener's send queue; the writer thread sends it in priority order.
+    // Returns false when the queue for that priority is full.
+    public boolean sendAsync(MavlinkPriority priority, PacketWriter writer)
+    {
+        return sendQueue().offer(priority, -1, -1, writer);
+    }
+
+    public boolean sendToAsync(MavlinkPriority priority, int sysId, int compId, PacketWriter writer)
+    {
+        return sendQueue().offer(priority, sysId, compId, writer);
+    }
+
+    private MavlinkSendQueue sendQueue()
+    {
+        MavlinkSendQueue queue = sendQueue;
+        if (queue == null)
+        {
+            throw new IllegalStateException("send queue is not enabled for listener " + id);
+        }
+        return queue;
+    }
+
+    void sendQueue(MavlinkSendQueue queue)
+    {
+        this.sendQueue = queue;
+    }
+
+    public int broadcast(PacketWriter writer)
+    {
+        ByteBuffer buffer = writeBuffer.get();
+        int written = write(buffer, writer);
+        int endpoints = transport.broadcast(buffer, 0, written);
+        countOut(written, endpoints);
+        return endpoints;
+    }
+
+    // Sends frames already encoded back to back; sysId < 0 goes to the transport's default destination.
+    void sendFrames(int sysId, int compId, ByteBuffer buffer, int offset, int length, int frames)
+    {
+        if (sysId < 0)
+        {
+            transport.send(buffer, offset, length);
+        } else
+        {
+            transport.sendTo(sysId, compId, buffer, offset, length);
+        }
+        if (stats != null)
+        {
+            stats.onPacketsOut(frames, length);
+        }
+    }
+
+    private static int write(ByteBuffer buffer, PacketWriter writer)
+    {
         buffer.clear();
         int written = writer.write(buffer, 0);
         if (written <= 0)
         {
             throw new IllegalArgumentException("writer returned invalid length: " + written);
         }
-        transport.send(buffer, 0, written);
         return written;
     }
 
+    private void countOut(int written, int copies)
+    {
+        if (stats != null)
+        {
+            for (int i = 0; i < copies; i++)
+            {
+                stats.onPacketOut(written);
+            }
+        }
+    }
+
     public <T extends MavlinkView> CompletableFuture<T> request(Class<T> responseType,
                                                                 int responseMessageId,
                                                                 PacketWriter writer)
     {
-        if (requestManager == null)
-        {
-            throw new IllegalStateException("request manager not available");
-        }
-        return request(responseType, responseMessageId, defaultRequestOptions, writer);
+        return request(MavlinkViewFactories.of(responseType), responseMessageId, defaultRequestOptions, writer);
     }
 
     public <T extends MavlinkView> CompletableFuture<T> request(Class<T> responseType,
                                                                 int responseMessageId,
                                                                 MavlinkRequestOptions options,
                                                                 PacketWriter writer)
+    {
+        return request(MavlinkViewFactories.of(responseType), responseMessageId, options, writer);
+    }
+
+    public <T extends MavlinkView> CompletableFuture<T> request(MavlinkViewFactory<T> factory,
+                                                                int responseMessageId,
+                                                                PacketWriter writer)
+    {
+        return request(factory, responseMessageId, defaultRequestOptions, writer);
+    }
+
+    public <T extends MavlinkView> CompletableFuture<T> request(MavlinkViewFactory<T> factory,
+                                                                int responseMessageId,
+                                                                MavlinkRequestOptions options,
+                                                                PacketWriter writer)
+    {
+        return register(factory, false, responseMessageId, options, writer);
+    }
+
+    public <T extends MavlinkView> CompletableFuture<MavlinkResponse<T>> requestPooled(MavlinkViewFactory<T> factory,
+                                                                                       int responseMessageId,
+                                                                                       PacketWriter writer)
+    {
+        return requestPooled(factory, responseMessageId, defaultRequestOptions, writer);
+    }
+
+    public <T extends MavlinkView> CompletableFuture<MavlinkResponse<T>> requestPooled(MavlinkViewFactory<T> factory,
+                                                                                       int responseMessageId,
+                                                                                       MavlinkRequestOptions options,
+                                                                                       PacketWriter writer)
+    {
+        return register(factory, true, responseMessageId, options, writer);
+    }
+
+    <T extends MavlinkView> CompletableFuture<T> await(MavlinkViewFactory<T> factory,
+                                                       int responseMessageId,
+                                                       MavlinkRequestOptions options)
+    {
+        if (requestManager == null)
+        {
+            throw new IllegalStateException("request manager not available");
+        }
+        return requestManager.register(responseMessageId, factory, false, options);
+    }
+
+    private <R> CompletableFuture<R> register(MavlinkViewFactory<?> factory,
+                                              boolean pooled,
+                                              int responseMessageId,
+                                              MavlinkRequestOptions options,
+                                              PacketWriter writer)
     {
         if (requestManager == null)
         {
             throw new IllegalStateException("request manager not available");
         }
-        CompletableFuture<T> future = requestManager.register(responseMessageId, responseType, options);
+        CompletableFuture<R> future = requestManager.register(responseMessageId, factory, pooled, options);
         send(writer);
         return future;
     }
@@ -2,7 +2,9 @@ package com.chulise.mavlink.quarkus;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.eclipse.microprofile.config.Config;
 
@@ -11,6 +13,7 @@ final class MavlinkConfigReader
     private static final String P_ROOT = "mavlink.";
     private static final String P_LISTENERS = "mavlink.listeners";
     private static final String P_LISTENER_PREFIX = "mavlink.listener.";
+    private static final String P_ROUTER = "mavlink.router.";
 
     private MavlinkConfigReader()
     {
@@ -33,19 +36,150 @@ final class MavlinkConfigReader
         List<MavlinkListenerConfig> listeners = new ArrayList<>(ids.size());
         for (String id : ids)
         {
-            String prefix = P_LISTENER_PREFIX + id + ".";
-            String transport = MavlinkConfigUtil.getString(config, prefix + "transport").orElse("udp");
-            String bind = MavlinkConfigUtil.getString(config, prefix + "bind").orElse(null);
-            String remote = MavlinkConfigUtil.getString(config, prefix + "remote").orElse(null);
-            String dialect = MavlinkConfigUtil.getString(config, prefix + "dialect").orElse(null);
+            listeners.add(readListener(config, id, P_LISTENER_PREFIX + id + "."));
+        }
+        return listeners;
+    }
 
-            MavlinkParserConfig parser = readParser(config, prefix + "parser.");
-            MavlinkWriterConfig writer = readWriter(config, prefix + "writer.");
-            MavlinkRequestConfig request = readRequest(config, prefix + "request.");
+    private static MavlinkListenerConfig readListener(Config config, String id, String prefix)
+    {
+        String transport = MavlinkConfigUtil.getString(config, prefix + "transport").orElse("udp");
+        String bind = MavlinkConfigUtil.getString(config, prefix + "bind").orElse(null);
+        String remote = MavlinkConfigUtil.getString(config, prefix + "remote").orElse(null);
+        String dialect = MavlinkConfigUtil.getString(config, prefix + "dialect").orElse(null);
+
+        MavlinkParserConfig parser = readParser(config, prefix + "parser.");
+        MavlinkWriterConfig writer = readWriter(config, prefix + "writer.");
+        MavlinkRequestConfig request = readRequest(config, prefix + "request.");
+        MavlinkUdpConfig udp = readUdp(config, prefix + "udp.");
+        Boolean metricsEnabled = MavlinkConfigUtil.getBoolean(config, prefix + "metrics.enabled").orElse(null);
+        List<String> forwardTo = MavlinkConfigUtil.getString(config, prefix + "router.forward-to")
+                .map(MavlinkConfigReader::splitIds)
+                .orElse(Collections.emptyList());
+        MavlinkDedupConfig dedup = readDedup(config, prefix + "dedup.");
+        MavlinkTlogConfig tlog = readTlog(config, prefix + "tlog.");
+        MavlinkReplayConfig replay = readReplay(config, prefix + "replay.");
+        MavlinkShmConfig shm = readShm(config, prefix + "shm.");
+        MavlinkStateCacheConfig stateCache = readStateCache(config, prefix + "state-cache.");
+        MavlinkHistoryConfig history = readHistory(config, prefix + "history.");
+        MavlinkRateLimitConfig rateLimit = readRateLimit(config, prefix + "rate-limit.");
+        MavlinkSendQueueConfig sendQueue = readSendQueue(config, prefix + "send-queue.");
+
+        return new MavlinkListenerConfig(id, transport, bind, remote, dialect, parser, writer, request, udp,
+                metricsEnabled, forwardTo, dedup, tlog, replay, shm, stateCache, history, rateLimit, sendQueue);
+    }
 
-            listeners.add(new MavlinkListenerConfig(id, transport, bind, remote, dialect, parser, writer, request));
+    private static MavlinkSendQueueConfig readSendQueue(Config config, String prefix)
+    {
+        Boolean enabled = MavlinkConfigUtil.getBoolean(config, prefix + "enabled").orElse(null);
+        Integer capacity = MavlinkConfigUtil.getInt(config, prefix + "capacity").orElse(null);
+        String policy = MavlinkConfigUtil.getString(config, prefix + "policy").orElse(null);
+        List<String> weights = MavlinkConfigUtil.getString(config, prefix + "weights")
+                .map(MavlinkConfigReader::splitIds)
+                .orElse(Collections.emptyList());
+        Long controlBudget = MavlinkConfigUtil.getLong(config, prefix + "budget.control").orElse(null);
+        Long normalBudget = MavlinkConfigUtil.getLong(config, prefix + "budget.normal").orElse(null);
+        Long bulkBudget = MavlinkConfigUtil.getLong(config, prefix + "budget.bulk").orElse(null);
+        String idle = MavlinkConfigUtil.getString(config, prefix + "idle").orElse(null);
+        return new MavlinkSendQueueConfig(enabled, capacity, policy, weights, controlBudget, normalBudget, bulkBudget,
+                idle);
+    }
+
+    // rate-limit.<message id>=<hz> for each limited message, plus rate-limit.latest.
+    private static MavlinkRateLimitConfig readRateLimit(Config config, String prefix)
+    {
+        Map<Integer, Double> rates = new HashMap<>();
+        for (String name : config.getPropertyNames())
+        {
+            if (!name.startsWith(prefix))
+            {
+                continue;
+            }
+            String key = name.substring(prefix.length());
+            if (key.equals("latest"))
+            {
+                continue;
+            }
+            int messageId;
+            try
+            {
+                messageId = Integer.parseInt(key.trim());
+            } catch (NumberFormatException e)
+            {
+                throw new IllegalStateException("rate-limit key must be a message id: " + name);
+            }
+            config.getOptionalValue(name, Double.class).ifPresent(hz -> rates.put(messageId, hz));
         }
-        return listeners;
+        Boolean latest = MavlinkConfigUtil.getBoolean(config, prefix + "latest").orElse(null);
+        return new MavlinkRateLimitConfig(rates, latest);
+    }
+
+    private static MavlinkReplayConfig readReplay(Config config, String prefix)
+    {
+        List<String> files = MavlinkConfigUtil.getString(config, prefix + "files")
+                .map(MavlinkConfigReader::splitIds)
+                .orElse(Collections.emptyList());
+        Float rate = MavlinkConfigUtil.getFloat(config, prefix + "rate").orElse(null);
+        Boolean loop = MavlinkConfigUtil.getBoolean(config, prefix + "loop").orElse(null);
+        Long spinNanos = MavlinkConfigUtil.getLong(config, prefix + "spin-ns").orElse(null);
+        return new MavlinkReplayConfig(files, rate, loop, spinNanos);
+    }
+
+    private static MavlinkHistoryConfig readHistory(Config config, String prefix)
+    {
+        List<String> messageIds = MavlinkConfigUtil.getString(config, prefix + "message-ids")
+                .map(MavlinkConfigReader::splitIds)
+                .orElse(Collections.emptyList());
+        Integer depth = MavlinkConfigUtil.getInt(config, prefix + "depth").orElse(null);
+        Integer maxSeries = MavlinkConfigUtil.getInt(config, prefix + "max-series").orElse(null);
+        return new MavlinkHistoryConfig(messageIds, depth, maxSeries);
+    }
+
+    private static MavlinkStateCacheConfig readStateCache(Config config, String prefix)
+    {
+        Boolean enabled = MavlinkConfigUtil.getBoolean(config, prefix + "enabled").orElse(null);
+        Integer capacity = MavlinkConfigUtil.getInt(config, prefix + "capacity").orElse(null);
+        List<String> messageIds = MavlinkConfigUtil.getString(config, prefix + "message-ids")
+                .map(MavlinkConfigReader::splitIds)
+                .orElse(Collections.emptyList());
+        return new MavlinkStateCacheConfig(enabled, capacity, messageIds);
+    }
+
+    private static MavlinkShmConfig readShm(Config config, String prefix)
+    {
+        String path = MavlinkConfigUtil.getString(config, prefix + "path").orElse(null);
+        String outboundPath = MavlinkConfigUtil.getString(config, prefix + "outbound-path").orElse(null);
+        String publishPath = MavlinkConfigUtil.getString(config, prefix + "publish-path").orElse(null);
+        Integer slots = MavlinkConfigUtil.getInt(config, prefix + "slots").orElse(null);
+        Integer slotSize = MavlinkConfigUtil.getInt(config, prefix + "slot-size").orElse(null);
+        String idle = MavlinkConfigUtil.getString(config, prefix + "idle").orElse(null);
+        return new MavlinkShmConfig(path, outboundPath, publishPath, slots, slotSize, idle);
+    }
+
+    private static MavlinkDedupConfig readDedup(Config config, String prefix)
+    {
+        String group = MavlinkConfigUtil.getString(config, prefix + "group").orElse(null);
+        Long windowMs = MavlinkConfigUtil.getLong(config, prefix + "window-ms").orElse(null);
+        Integer capacity = MavlinkConfigUtil.getInt(config, prefix + "capacity").orElse(null);
+        return new MavlinkDedupConfig(group, windowMs, capacity);
+    }
+
+    private static MavlinkTlogConfig readTlog(Config config, String prefix)
+    {
+        String directory = MavlinkConfigUtil.getString(config, prefix + "directory").orElse(null);
+        String filePrefix = MavlinkConfigUtil.getString(config, prefix + "prefix").orElse(null);
+        Integer segmentSize = MavlinkConfigUtil.getInt(config, prefix + "segment-size").orElse(null);
+        Long rollIntervalMs = MavlinkConfigUtil.getLong(config, prefix + "roll-interval-ms").orElse(null);
+        Long flushIntervalMs = MavlinkConfigUtil.getLong(config, prefix + "flush-interval-ms").orElse(null);
+        Boolean index = MavlinkConfigUtil.getBoolean(config, prefix + "index").orElse(null);
+        return new MavlinkTlogConfig(directory, filePrefix, segmentSize, rollIntervalMs, flushIntervalMs, index);
+    }
+
+    static MavlinkRouterConfig readRouter(Config config)
+    {
+        Long dedupWindowMs = MavlinkConfigUtil.getLong(config, P_ROUTER + "dedup-window-ms").orElse(null);
+        Integer dedupCapacity = MavlinkConfigUtil.getInt(config, P_ROUTER + "dedup-capacity").orElse(null);
+        return new MavlinkRouterConfig(dedupWindowMs, dedupCapacity);
     }
 
     private static List<String> readListenerIds(Config config)
@@ -59,8 +193,12 @@ final class MavlinkConfigReader
         {
             return Collections.emptyList();
         }
+        return splitIds(raw.get());
+    }
 
-        String[] parts = raw.get().split(",");
+    private static List<String> splitIds(String raw)
+    {
+        String[] parts = raw.split(",");
         List<String> ids = new ArrayList<>(parts.length);
         for (String p : parts)
         {
@@ -110,15 +248,35 @@ final class MavlinkConfigReader
         String defaultMatch = MavlinkConfigUtil.getString(config, prefix + "default-match").orElse(null);
         Long timeout = MavlinkConfigUtil.getLong(config, prefix + "timeout-ms").orElse(null);
         Integer maxPending = MavlinkConfigUtil.getInt(config, prefix + "max-pending").orElse(null);
+        Integer responsePoolSize = MavlinkConfigUtil.getInt(config, prefix + "response-pool-size").orElse(null);
 
         Integer expectedSysId = MavlinkConfigUtil.getInt(config, prefix + "expected-sys-id").orElse(null);
         Integer expectedCompId = MavlinkConfigUtil.getInt(config, prefix + "expected-comp-id").orElse(null);
         Integer expectedLinkId = MavlinkConfigUtil.getInt(config, prefix + "expected-link-id").orElse(null);
 
-        return new MavlinkRequestConfig(defaultMatch, timeout, maxPending,
+        return new MavlinkRequestConfig(defaultMatch, timeout, maxPending, responsePoolSize,
                 expectedSysId, expectedCompId, expectedLinkId);
     }
 
+    private static MavlinkUdpConfig readUdp(Config config, String prefix)
+    {
+        Integer threads = MavlinkConfigUtil.getInt(config, prefix + "threads").orElse(null);
+        Boolean reusePort = MavlinkConfigUtil.getBoolean(config, prefix + "reuse-port").orElse(null);
+        Integer receiveBufferSize = MavlinkConfigUtil.getInt(config, prefix + "receive-buffer-size").orElse(null);
+        Integer sendBufferSize = MavlinkConfigUtil.getInt(config, prefix + "send-buffer-size").orElse(null);
+        Integer batchSize = MavlinkConfigUtil.getInt(config, prefix + "batch-size").orElse(null);
+        Integer bufferSize = MavlinkConfigUtil.getInt(config, prefix + "buffer-size").orElse(null);
+        Long routeIdleMs = MavlinkConfigUtil.getLong(config, prefix + "route-idle-ms").orElse(null);
+        String idle = MavlinkConfigUtil.getString(config, prefix + "idle").orElse(null);
+        List<String> cpus = MavlinkConfigUtil.getString(config, prefix + "cpus")
+                .map(MavlinkConfigReader::splitIds)
+                .orElse(Collections.emptyList());
+        String affinity = MavlinkConfigUtil.getString(config, prefix + "affinity").orElse(null);
+
+        return new MavlinkUdpConfig(threads, reusePort, receiveBufferSize, sendBufferSize, batchSize, bufferSize,
+                routeIdleMs, idle, cpus, affinity);
+    }
+
     private static List<MavlinkListenerConfig> readListenersFromList(Config config)
     {
         List<Integer> indices = new ArrayList<>();
@@ -141,16 +299,7 @@ final class MavlinkConfigReader
         {
             String prefix = P_ROOT + "listeners[" + idx + "].";
             String id = MavlinkConfigUtil.getString(config, prefix + "id").orElse(String.valueOf(idx));
-            String transport = MavlinkConfigUtil.getString(config, prefix + "transport").orElse("udp");
-            String bind = MavlinkConfigUtil.getString(config, prefix + "bind").orElse(null);
-            String remote = MavlinkConfigUtil.getString(config, prefix + "remote").orElse(null);
-            String dialect = MavlinkConfigUtil.getString(config, prefix + "dialect").orElse(null);
-
-            MavlinkParserConfig parser = readParser(config, prefix + "parser.");
-            MavlinkWriterConfig writer = readWriter(config, prefix + "writer.");
-            MavlinkRequestConfig request = readRequest(config, prefix + "request.");
-
-            listeners.add(new MavlinkListenerConfig(id, transport, bind, remote, dialect, parser, writer, request));
+            listeners.add(readListener(config, id, prefix));
         }
         return listeners;
     }
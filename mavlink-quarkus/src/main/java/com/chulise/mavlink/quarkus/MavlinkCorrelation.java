@@ -0,0 +1,9 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkPacketView;
+
+@FunctionalInterface
+public interface MavlinkCorrelation
+{
+    int key(MavlinkPacketView packet);
+}
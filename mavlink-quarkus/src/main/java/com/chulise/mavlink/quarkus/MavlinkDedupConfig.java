@@ -0,0 +1,15 @@
+package com.chulise.mavlink.quarkus;
+
+final class MavlinkDedupConfig
+{
+    final String group;
+    final Long windowMs;
+    final Integer capacity;
+
+    MavlinkDedupConfig(String group, Long windowMs, Integer capacity)
+    {
+        this.group = group;
+        this.windowMs = windowMs;
+        this.capacity = capacity;
+    }
+}
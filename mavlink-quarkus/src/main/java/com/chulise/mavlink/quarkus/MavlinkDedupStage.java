@@ -0,0 +1,45 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkPacketView;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-listener view of a window shared by every listener in the same dedup group.
+final class MavlinkDedupStage
+{
+    private final String group;
+    private final MavlinkDedupWindow window;
+    private final LongAdder firstCopies = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+
+    MavlinkDedupStage(String group, MavlinkDedupWindow window)
+    {
+        this.group = group;
+        this.window = window;
+    }
+
+    boolean accept(MavlinkPacketView packet)
+    {
+        if (window.firstSeen(MavlinkDedupWindow.frameKey(packet)))
+        {
+            firstCopies.increment();
+            return true;
+        }
+        duplicates.increment();
+        return false;
+    }
+
+    String group()
+    {
+        return group;
+    }
+
+    long firstCopies()
+    {
+        return firstCopies.sum();
+    }
+
+    long duplicates()
+    {
+        return duplicates.sum();
+    }
+}
@@ -0,0 +1,88 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkPacketView;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Fixed open-addressing table of (fingerprint, millis) slots packed into one long so updates are a single CAS.
+final class MavlinkDedupWindow
+{
+    private static final int PROBES = 8;
+    private static final int TIME_BITS = 24;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final long windowMs;
+
+    MavlinkDedupWindow(int capacity, long windowMs)
+    {
+        if (windowMs <= 0 || windowMs >= TIME_MASK)
+        {
+            throw new IllegalStateException("dedup window must be between 1 and " + (TIME_MASK - 1) + " ms");
+        }
+        int size = Integer.highestOneBit(Math.max(PROBES, capacity) - 1) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.windowMs = windowMs;
+    }
+
+    static long frameKey(MavlinkPacketView packet)
+    {
+        ByteBuffer buffer = packet.getBuffer();
+        int crcPos = packet.getPayloadOffset() + packet.getPayloadLength();
+        int crc = (buffer.get(crcPos) & 0xFF) | ((buffer.get(crcPos + 1) & 0xFF) << 8);
+        return ((long) packet.getSysId() << 56)
+                | ((long) packet.getCompId() << 48)
+                | ((long) packet.getSequence() << 40)
+                | ((long) (packet.getMessageId() & 0xFFFFFF) << 16)
+                | crc;
+    }
+
+    boolean firstSeen(long key)
+    {
+        return firstSeen(key, System.nanoTime() / 1_000_000L);
+    }
+
+    boolean firstSeen(long key, long nowMs)
+    {
+        long hash = mix(key);
+        long fingerprint = (hash >>> TIME_BITS) | 1L;
+        long now = nowMs & TIME_MASK;
+        int base = (int) hash & mask;
+        int free = -1;
+        long freeValue = 0;
+        for (int i = 0; i < PROBES; i++)
+        {
+            int idx = (base + i) & mask;
+            long slot = slots.get(idx);
+            boolean live = slot != 0 && ((now - (slot & TIME_MASK)) & TIME_MASK) < windowMs;
+            if (live && (slot >>> TIME_BITS) == fingerprint)
+            {
+                return false;
+            }
+            if (!live && free < 0)
+            {
+                free = idx;
+                freeValue = slot;
+            }
+        }
+        long entry = (fingerprint << TIME_BITS) | now;
+        if (free < 0)
+        {
+            slots.set(base, entry);
+            return true;
+        }
+        if (slots.compareAndSet(free, freeValue, entry))
+        {
+            return true;
+        }
+        return (slots.get(free) >>> TIME_BITS) != fingerprint;
+    }
+
+    private static long mix(long key)
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+}
@@ -2,40 +2,66 @@ package com.chulise.mavlink.quarkus;
 
 import com.chulise.mavlink.core.MavlinkPacketView;
 import com.chulise.mavlink.core.MavlinkView;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public final class MavlinkDispatcher
 {
     private final Map<Integer, MavlinkHandlerGroup> handlers = new HashMap<>();
-    private final List<MavlinkHandlerInvoker> rawHandlers = new ArrayList<>();
+    // Copy-on-write so protocol engines can attach after the transport started.
+    private final List<MavlinkHandlerInvoker> rawHandlers = new CopyOnWriteArrayList<>();
     private final MavlinkRequestManager requestManager;
+    private final MavlinkListenerStats stats;
+    private final Map<Integer, Double> rateLimits = new HashMap<>();
+    private boolean rateLimitLatest;
 
-    MavlinkDispatcher(MavlinkRequestManager requestManager)
+    MavlinkDispatcher(MavlinkRequestManager requestManager, MavlinkListenerStats stats)
     {
         this.requestManager = requestManager;
+        this.stats = stats;
     }
 
     public void addHandler(int messageId,
                            Class<? extends MavlinkView> viewType,
                            ThreadLocal<? extends MavlinkView> pool,
                            MavlinkHandlerInvoker handler)
+    {
+        addHandler(messageId, viewType, pool, handler, 0, false);
+    }
+
+    // maxRateHz <= 0 means unlimited; a rate-limit configured for the message id takes precedence.
+    public void addHandler(int messageId,
+                           Class<? extends MavlinkView> viewType,
+                           ThreadLocal<? extends MavlinkView> pool,
+                           MavlinkHandlerInvoker handler,
+                           double maxRateHz,
+                           boolean latest)
     {
         MavlinkHandlerGroup group = handlers.get(messageId);
         if (group == null)
         {
-            MavlinkHandlerGroup created = new MavlinkHandlerGroup(viewType, pool);
-            created.add(handler);
-            handlers.put(messageId, created);
-            return;
-        }
-        if (!group.viewType().equals(viewType))
+            group = new MavlinkHandlerGroup(viewType, pool);
+            handlers.put(messageId, group);
+        } else if (!group.viewType().equals(viewType))
         {
             throw new IllegalStateException("messageId " + messageId + " already registered for " + group.viewType().getName());
         }
-        group.add(handler);
+        Double configured = rateLimits.get(messageId);
+        double hz = configured != null ? configured : maxRateHz;
+        MavlinkRateLimiter limiter = hz > 0
+                ? new MavlinkRateLimiter(hz, configured != null ? rateLimitLatest : latest, handler, group.viewPool(),
+                        requestManager.timer(), stats)
+                : null;
+        group.add(handler, limiter);
+    }
+
+    // Must be set before handlers are added.
+    void rateLimits(Map<Integer, Double> limits, boolean latest)
+    {
+        rateLimits.putAll(limits);
+        rateLimitLatest = latest;
     }
 
     public void registerRaw(MavlinkHandlerInvoker handler)
@@ -43,25 +69,60 @@ public final class MavlinkDispatcher
         rawHandlers.add(handler);
     }
 
-    void dispatch(MavlinkPacketView packet)
+    void removeRaw(MavlinkHandlerInvoker handler)
+    {
+        rawHandlers.remove(handler);
+    }
+
+    // Timing costs two nanoTime calls, so lanes only ask for it on a sample of packets.
+    void dispatch(MavlinkPacketView packet, boolean timed)
     {
+        if (stats == null)
+        {
+            dispatchInternal(packet);
+            return;
+        }
+
+        stats.onPacketIn(packet.getMessageId());
+        if (!timed)
+        {
+            dispatchInternal(packet);
+            return;
+        }
+        long start = System.nanoTime();
+        dispatchInternal(packet);
+        stats.onDispatch(System.nanoTime() - start);
+    }
+
+    private void dispatchInternal(MavlinkPacketView packet)
+    {
+        requestManager.onPacket(packet);
         MavlinkHandlerGroup group = handlers.get(packet.getMessageId());
         if (group != null)
         {
-            MavlinkView view = group.view();
-            view.wrap(packet);
-            requestManager.onPacket(packet);
-            group.dispatch(view);
-        } else
-        {
-            requestManager.onPacket(packet);
+            group.dispatch(packet, stats);
         }
 
         if (!rawHandlers.isEmpty())
         {
             for (MavlinkHandlerInvoker handler : rawHandlers)
             {
-                handler.invoke(packet);
+                invoke(handler, packet, stats);
+            }
+        }
+    }
+
+    // A failing handler never reaches the transport thread, whether or not metrics are enabled.
+    static void invoke(MavlinkHandlerInvoker handler, Object arg, MavlinkListenerStats stats)
+    {
+        try
+        {
+            handler.invoke(arg);
+        } catch (RuntimeException e)
+        {
+            if (stats != null)
+            {
+                stats.onHandlerError();
             }
         }
     }
@@ -0,0 +1,146 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkPacketView;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+// Routes learned from inbound headers, indexed directly by sysid and compid.
+final class MavlinkEndpointTable
+{
+    private static final long TOUCH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AtomicReferenceArray<Endpoint> systems = new AtomicReferenceArray<>(256);
+    private final AtomicReferenceArray<AtomicReferenceArray<Endpoint>> components = new AtomicReferenceArray<>(256);
+    private final long idleNanos;
+
+    MavlinkEndpointTable(long idleMs)
+    {
+        this.idleNanos = idleMs > 0 ? TimeUnit.MILLISECONDS.toNanos(idleMs) : Long.MAX_VALUE;
+    }
+
+    void learn(ByteBuffer datagram, SocketAddress src)
+    {
+        int start = datagram.position();
+        if (datagram.remaining() < MavlinkPacketView.HEADER_LEN_V1)
+        {
+            return;
+        }
+        int magic = datagram.get(start) & 0xFF;
+        int sysId;
+        int compId;
+        if (magic == MavlinkPacketView.MAGIC_V2 && datagram.remaining() >= MavlinkPacketView.HEADER_LEN_V2)
+        {
+            sysId = datagram.get(start + 5) & 0xFF;
+            compId = datagram.get(start + 6) & 0xFF;
+        } else if (magic == MavlinkPacketView.MAGIC_V1)
+        {
+            sysId = datagram.get(start + 3) & 0xFF;
+            compId = datagram.get(start + 4) & 0xFF;
+        } else
+        {
+            return;
+        }
+
+        long now = System.nanoTime();
+        update(systems, sysId, src, now);
+        AtomicReferenceArray<Endpoint> comps = components.get(sysId);
+        if (comps == null)
+        {
+            components.compareAndSet(sysId, null, new AtomicReferenceArray<>(256));
+            comps = components.get(sysId);
+        }
+        update(comps, compId, src, now);
+    }
+
+    SocketAddress lookup(int sysId, int compId)
+    {
+        long now = System.nanoTime();
+        if (compId >= 0)
+        {
+            AtomicReferenceArray<Endpoint> comps = components.get(sysId & 0xFF);
+            if (comps != null)
+            {
+                SocketAddress address = live(comps, compId & 0xFF, now);
+                if (address != null)
+                {
+                    return address;
+                }
+            }
+        }
+        return live(systems, sysId & 0xFF, now);
+    }
+
+    int forEachDistinct(Consumer<SocketAddress> consumer)
+    {
+        long now = System.nanoTime();
+        int sent = 0;
+        for (int i = 0; i < 256; i++)
+        {
+            SocketAddress address = live(systems, i, now);
+            if (address == null || seenBefore(address, i, now))
+            {
+                continue;
+            }
+            consumer.accept(address);
+            sent++;
+        }
+        return sent;
+    }
+
+    private boolean seenBefore(SocketAddress address, int index, long now)
+    {
+        for (int j = 0; j < index; j++)
+        {
+            SocketAddress other = live(systems, j, now);
+            if (other != null && other.equals(address))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private SocketAddress live(AtomicReferenceArray<Endpoint> table, int index, long now)
+    {
+        Endpoint endpoint = table.get(index);
+        if (endpoint == null)
+        {
+            return null;
+        }
+        if (now - endpoint.lastSeen > idleNanos)
+        {
+            table.compareAndSet(index, endpoint, null);
+            return null;
+        }
+        return endpoint.address;
+    }
+
+    private static void update(AtomicReferenceArray<Endpoint> table, int index, SocketAddress src, long now)
+    {
+        Endpoint endpoint = table.get(index);
+        if (endpoint != null && (endpoint.address == src || endpoint.address.equals(src)))
+        {
+            if (now - endpoint.lastSeen > TOUCH_INTERVAL_NANOS)
+            {
+                endpoint.lastSeen = now;
+            }
+            return;
+        }
+        table.set(index, new Endpoint(src, now));
+    }
+
+    private static final class Endpoint
+    {
+        final SocketAddress address;
+        volatile long lastSeen;
+
+        Endpoint(SocketAddress address, long lastSeen)
+        {
+            this.address = address;
+            this.lastSeen = lastSeen;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkPacketView;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bounded multi-producer/single-consumer ring of encoded frames. A producer claims a slot with one CAS on the tail,
+// encodes straight into the slot's buffer and publishes it through the slot sequence; nothing is allocated per frame.
+final class MavlinkFrameQueue
+{
+    static final int MAX_FRAME = MavlinkPacketView.HEADER_LEN_V2 + 255 + 2 + MavlinkPacketView.SIGNATURE_LEN;
+
+    private final ByteBuffer[] frames;
+    private final int[] lengths;
+    private final int[] sysIds;
+    private final int[] compIds;
+    private final long[] enqueuedAt;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final int capacity;
+    private final int mask;
+    private long head;
+
+    MavlinkFrameQueue(int capacity)
+    {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = this.capacity - 1;
+        ByteBuffer slab = ByteBuffer.allocateDirect(this.capacity * MAX_FRAME);
+        this.frames = new ByteBuffer[this.capacity];
+        this.lengths = new int[this.capacity];
+        this.sysIds = new int[this.capacity];
+        this.compIds = new int[this.capacity];
+        this.enqueuedAt = new long[this.capacity];
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++)
+        {
+            frames[i] = slab.slice(i * MAX_FRAME, MAX_FRAME).order(ByteOrder.LITTLE_ENDIAN);
+            sequences.set(i, i);
+        }
+    }
+
+    // Slot to encode into, or -1 when the ring is full. Every claimed slot must be published.
+    int claim()
+    {
+        while (true)
+        {
+            long t = tail.get();
+            int slot = (int) (t & mask);
+            long seq = sequences.get(slot);
+            if (seq == t)
+            {
+                if (tail.compareAndSet(t, t + 1))
+                {
+                    return slot;
+                }
+            } else if (seq < t)
+            {
+                return -1;
+            }
+        }
+    }
+
+    ByteBuffer frame(int slot)
+    {
+        return frames[slot];
+    }
+
+    // length <= 0 publishes an empty slot the consumer skips, for writers that failed after claiming.
+    void publish(int slot, int length, int sysId, int compId, long nanos)
+    {
+        lengths[slot] = length;
+        sysIds[slot] = sysId;
+        compIds[slot] = compId;
+        enqueuedAt[slot] = nanos;
+        sequences.lazySet(slot, sequences.get(slot) + 1);
+    }
+
+    // Consumer side: the slot at the head when it is published, otherwise -1.
+    int peek()
+    {
+        int slot = (int) (head & mask);
+        return sequences.get(slot) == head + 1 ? slot : -1;
+    }
+
+    void release(int slot)
+    {
+        sequences.lazySet(slot, head + capacity);
+        head++;
+    }
+
+    int length(int slot)
+    {
+        return lengths[slot];
+    }
+
+    int sysId(int slot)
+    {
+        return sysIds[slot];
+    }
+
+    int compId(int slot)
+    {
+        return compIds[slot];
+    }
+
+    long enqueuedAt(int slot)
+    {
+        return enqueuedAt[slot];
+    }
+}
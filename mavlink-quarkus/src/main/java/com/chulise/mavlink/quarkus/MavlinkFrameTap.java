@@ -0,0 +1,10 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkPacketView;
+import java.nio.ByteBuffer;
+
+// Sees each framed packet on the receiving thread before dispatch; the bytes are only valid during the call.
+interface MavlinkFrameTap
+{
+    void onFrame(MavlinkPacketView packet, ByteBuffer buffer, int offset, int length);
+}
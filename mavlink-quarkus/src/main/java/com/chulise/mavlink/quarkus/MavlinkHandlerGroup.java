@@ -1,5 +1,6 @@
 package com.chulise.mavlink.quarkus;
 
+import com.chulise.mavlink.core.MavlinkPacketView;
 import com.chulise.mavlink.core.MavlinkView;
 import java.util.ArrayList;
 import java.util.List;
@@ -9,6 +10,7 @@ final class MavlinkHandlerGroup
     private final Class<? extends MavlinkView> viewType;
     private final ThreadLocal<? extends MavlinkView> viewPool;
     private final List<MavlinkHandlerInvoker> handlers = new ArrayList<>();
+    private final List<MavlinkRateLimiter> limiters = new ArrayList<>();
 
     MavlinkHandlerGroup(Class<? extends MavlinkView> viewType, ThreadLocal<? extends MavlinkView> viewPool)
     {
@@ -21,21 +23,34 @@ final class MavlinkHandlerGroup
         return viewType;
     }
 
-    void add(MavlinkHandlerInvoker handler)
+    ThreadLocal<? extends MavlinkView> viewPool()
     {
-        handlers.add(handler);
+        return viewPool;
     }
 
-    MavlinkView view()
+    void add(MavlinkHandlerInvoker handler, MavlinkRateLimiter limiter)
     {
-        return viewPool.get();
+        handlers.add(handler);
+        limiters.add(limiter);
     }
 
-    void dispatch(MavlinkView view)
+    // Rate limits are checked against the header first; the view is only wrapped once some handler takes the packet.
+    void dispatch(MavlinkPacketView packet, MavlinkListenerStats stats)
     {
-        for (MavlinkHandlerInvoker handler : handlers)
+        MavlinkView view = null;
+        for (int i = 0; i < handlers.size(); i++)
         {
-            handler.invoke(view);
+            MavlinkRateLimiter limiter = limiters.get(i);
+            if (limiter != null && !limiter.tryAcquire(packet))
+            {
+                continue;
+            }
+            if (view == null)
+            {
+                view = viewPool.get();
+                view.wrap(packet);
+            }
+            MavlinkDispatcher.invoke(handlers.get(i), view, stats);
         }
     }
 }
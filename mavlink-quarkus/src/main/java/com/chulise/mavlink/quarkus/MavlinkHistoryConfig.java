@@ -0,0 +1,17 @@
+package com.chulise.mavlink.quarkus;
+
+import java.util.List;
+
+final class MavlinkHistoryConfig
+{
+    final List<String> messageIds;
+    final Integer depth;
+    final Integer maxSeries;
+
+    MavlinkHistoryConfig(List<String> messageIds, Integer depth, Integer maxSeries)
+    {
+        this.messageIds = messageIds;
+        this.depth = depth;
+        this.maxSeries = maxSeries;
+    }
+}
@@ -0,0 +1,207 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkDialect;
+import com.chulise.mavlink.core.MavlinkPacketView;
+import com.chulise.mavlink.core.MavlinkParser;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// One lane per receive thread or stream connection; a lane is never shared between threads.
+final class MavlinkInboundLane implements AutoCloseable
+{
+    private static final int STREAM_RING_SIZE = 8192;
+    private static final long RING_MASK = STREAM_RING_SIZE - 1;
+    private static final int MAX_PACKET_LEN_V2 = MavlinkPacketView.HEADER_LEN_V2 + 255 + 2 + MavlinkPacketView.SIGNATURE_LEN;
+    private static final int STREAM_RESYNC_THRESHOLD = MAX_PACKET_LEN_V2 * 2;
+    // One packet in 64 is timed for the dispatch latency metrics.
+    private static final int DISPATCH_SAMPLE_MASK = 63;
+
+    private final MavlinkParser parser;
+    private final MavlinkDialect dialect;
+    private final MavlinkDispatcher dispatcher;
+    private final MavlinkListenerStats stats;
+    private final boolean stream;
+    private final MavlinkFrameTap tap;
+    private final MavlinkDedupStage dedup;
+    private ByteBuffer ring;
+    private ByteBuffer scratch;
+    private long head;
+    private long tail;
+    private int dispatched;
+
+    MavlinkInboundLane(MavlinkParser parser,
+                       MavlinkDialect dialect,
+                       MavlinkDispatcher dispatcher,
+                       MavlinkListenerStats stats,
+                       boolean stream,
+                       MavlinkFrameTap tap,
+                       MavlinkDedupStage dedup)
+    {
+        this.parser = parser;
+        this.dialect = dialect;
+        this.dispatcher = dispatcher;
+        this.stats = stats;
+        this.stream = stream;
+        this.tap = tap;
+        this.dedup = dedup;
+        if (stats != null)
+        {
+            stats.addParser(parser);
+        }
+    }
+
+    void onData(ByteBuffer data)
+    {
+        if (stats != null)
+        {
+            stats.onBytesIn(data.remaining());
+        }
+        if (stream)
+        {
+            onStreamData(data);
+        } else
+        {
+            onDatagram(data);
+        }
+    }
+
+    void reset()
+    {
+        head = 0;
+        tail = 0;
+    }
+
+    private void onDatagram(ByteBuffer buffer)
+    {
+        int limit = buffer.limit();
+        int cursor = buffer.position();
+        while (cursor < limit)
+        {
+            MavlinkParser.ParseResult res = parser.next(buffer, cursor, dialect);
+            if (res == null)
+            {
+                return;
+            }
+            onFrame(buffer, res);
+            cursor = res.startOffset() + res.length();
+        }
+    }
+
+    private void onFrame(ByteBuffer buffer, MavlinkParser.ParseResult res)
+    {
+        if (tap != null)
+        {
+            tap.onFrame(res.view(), buffer, res.startOffset(), res.length());
+        }
+        if (dedup != null && !dedup.accept(res.view()))
+        {
+            return;
+        }
+        dispatcher.dispatch(res.view(), (dispatched++ & DISPATCH_SAMPLE_MASK) == 0);
+    }
+
+    // Stream bytes go into a wrap-around ring and are parsed where they land. Only a frame that straddles the end of
+    // the ring is copied, into a scratch buffer, before parsing.
+    private void onStreamData(ByteBuffer chunk)
+    {
+        if (ring == null)
+        {
+            ring = ByteBuffer.allocateDirect(STREAM_RING_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            scratch = ByteBuffer.allocateDirect(STREAM_RESYNC_THRESHOLD).order(ByteOrder.LITTLE_ENDIAN);
+            head = 0;
+            tail = 0;
+        }
+        int position = chunk.position();
+        int remaining = chunk.remaining();
+        while (remaining > 0)
+        {
+            int n = Math.min(remaining, STREAM_RING_SIZE - (int) (tail - head));
+            int at = (int) (tail & RING_MASK);
+            int first = Math.min(n, STREAM_RING_SIZE - at);
+            ring.limit(STREAM_RING_SIZE);
+            ring.put(at, chunk, position, first);
+            if (first < n)
+            {
+                ring.put(0, chunk, position + first, n - first);
+            }
+            tail += n;
+            position += n;
+            remaining -= n;
+            drainRing();
+        }
+        chunk.position(chunk.limit());
+    }
+
+    private void drainRing()
+    {
+        while (tail > head)
+        {
+            int used = (int) (tail - head);
+            int start = (int) (head & RING_MASK);
+            int contiguous = Math.min(used, STREAM_RING_SIZE - start);
+            ring.limit(start + contiguous);
+            MavlinkParser.ParseResult res = parser.next(ring, start, dialect);
+            if (res != null)
+            {
+                onFrame(ring, res);
+                head += res.startOffset() + res.length() - start;
+                continue;
+            }
+            // Skip what the parser already ruled out, so the next chunk does not re-reject the same candidates.
+            if (parser.resumeOffset() > start)
+            {
+                head += parser.resumeOffset() - start;
+                continue;
+            }
+            if (contiguous < used && contiguous < scratch.capacity())
+            {
+                int n = Math.min(used, scratch.capacity());
+                scratch.clear();
+                scratch.put(0, ring, start, contiguous);
+                scratch.put(contiguous, ring, 0, n - contiguous);
+                scratch.limit(n);
+                res = parser.next(scratch, 0, dialect);
+                if (res != null)
+                {
+                    onFrame(scratch, res);
+                    head += res.startOffset() + res.length();
+                    continue;
+                }
+                if (parser.resumeOffset() > 0)
+                {
+                    head += parser.resumeOffset();
+                    continue;
+                }
+            }
+            if (used >= STREAM_RESYNC_THRESHOLD)
+            {
+                // No frame within two maximum frame lengths: the bytes at head cannot start one.
+                head = nextMagic(head + 1);
+                continue;
+            }
+            return;
+        }
+    }
+
+    private long nextMagic(long from)
+    {
+        for (long i = from; i < tail; i++)
+        {
+            int b = ring.get((int) (i & RING_MASK)) & 0xFF;
+            if (b == MavlinkPacketView.MAGIC_V1 || b == MavlinkPacketView.MAGIC_V2)
+            {
+                return i;
+            }
+        }
+        return tail;
+    }
+
+    @Override
+    public void close()
+    {
+        if (stats != null)
+        {
+            stats.removeParser(parser);
+        }
+    }
+}
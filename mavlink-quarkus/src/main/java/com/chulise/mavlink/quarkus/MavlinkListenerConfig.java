@@ -1,5 +1,7 @@
 package com.chulise.mavlink.quarkus;
 
+import java.util.List;
+
 final class MavlinkListenerConfig
 {
     final String id;
@@ -10,6 +12,17 @@ final class MavlinkListenerConfig
     final MavlinkParserConfig parser;
     final MavlinkWriterConfig writer;
     final MavlinkRequestConfig request;
+    final MavlinkUdpConfig udp;
+    final Boolean metricsEnabled;
+    final List<String> forwardTo;
+    final MavlinkDedupConfig dedup;
+    final MavlinkTlogConfig tlog;
+    final MavlinkReplayConfig replay;
+    final MavlinkShmConfig shm;
+    final MavlinkStateCacheConfig stateCache;
+    final MavlinkHistoryConfig history;
+    final MavlinkRateLimitConfig rateLimit;
+    final MavlinkSendQueueConfig sendQueue;
 
     MavlinkListenerConfig(String id,
                           String transport,
@@ -18,7 +31,18 @@ final class MavlinkListenerConfig
                           String dialect,
                           MavlinkParserConfig parser,
                           MavlinkWriterConfig writer,
-                          MavlinkRequestConfig request)
+                          MavlinkRequestConfig request,
+                          MavlinkUdpConfig udp,
+                          Boolean metricsEnabled,
+                          List<String> forwardTo,
+                          MavlinkDedupConfig dedup,
+                          MavlinkTlogConfig tlog,
+                          MavlinkReplayConfig replay,
+                          MavlinkShmConfig shm,
+                          MavlinkStateCacheConfig stateCache,
+                          MavlinkHistoryConfig history,
+                          MavlinkRateLimitConfig rateLimit,
+                          MavlinkSendQueueConfig sendQueue)
     {
         this.id = id;
         this.transport = transport;
@@ -28,5 +52,16 @@ final class MavlinkListenerConfig
         this.parser = parser;
         this.writer = writer;
         this.request = request;
+        this.udp = udp;
+        this.metricsEnabled = metricsEnabled;
+        this.forwardTo = forwardTo;
+        this.dedup = dedup;
+        this.tlog = tlog;
+        this.replay = replay;
+        this.shm = shm;
+        this.stateCache = stateCache;
+        this.history = history;
+        this.rateLimit = rateLimit;
+        this.sendQueue = sendQueue;
     }
 }
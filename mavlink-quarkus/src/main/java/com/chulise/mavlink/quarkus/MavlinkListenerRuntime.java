@@ -3,42 +3,45 @@ package com.chulise.mavlink.quarkus;
 import com.chulise.mavlink.core.MavlinkDialect;
 import com.chulise.mavlink.core.MavlinkParser;
 import com.chulise.mavlink.core.MavlinkPacketWriter;
-import com.chulise.mavlink.core.MavlinkPacketView;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
 
 final class MavlinkListenerRuntime implements AutoCloseable
 {
-    private static final int STREAM_BUFFER_SIZE = 8192;
-    private static final int MAX_PACKET_LEN_V2 = MavlinkPacketView.HEADER_LEN_V2 + 255 + 2 + MavlinkPacketView.SIGNATURE_LEN;
-    private static final int STREAM_RESYNC_THRESHOLD = MAX_PACKET_LEN_V2 * 2;
-
     private final String id;
-    private final MavlinkParser parser;
+    private final Supplier<MavlinkParser> parsers;
     private final MavlinkDispatcher dispatcher;
     private final MavlinkRequestManager requestManager;
     private final MavlinkTransport transport;
     private final MavlinkDialect dialect;
     private final MavlinkClient client;
-    private ByteBuffer streamBuffer;
-    private int streamWritePos;
+    private final MavlinkListenerStats stats;
+    private final MavlinkDedupStage dedup;
+    private final List<MavlinkFrameTap> taps = new ArrayList<>();
+    private final List<AutoCloseable> resources = new ArrayList<>();
 
     MavlinkListenerRuntime(String id,
-                           MavlinkParser parser,
+                           Supplier<MavlinkParser> parsers,
                            MavlinkDispatcher dispatcher,
                            MavlinkTransport transport,
                            MavlinkPacketWriter.Encoder encoder,
                            MavlinkRequestManager requestManager,
                            MavlinkRequestOptions defaultRequestOptions,
-                           MavlinkDialect dialect)
+                           MavlinkDialect dialect,
+                           MavlinkListenerStats stats,
+                           MavlinkDedupStage dedup)
     {
         this.id = id;
-        this.parser = parser;
+        this.parsers = parsers;
         this.dispatcher = dispatcher;
         this.requestManager = requestManager;
         this.transport = transport;
         this.dialect = dialect;
-        this.client = new MavlinkClient(id, transport, encoder, requestManager, defaultRequestOptions);
+        this.stats = stats;
+        this.dedup = dedup;
+        this.client = new MavlinkClient(id, transport, encoder, requestManager, defaultRequestOptions, stats,
+                dispatcher);
     }
 
     String id()
@@ -56,126 +59,70 @@ final class MavlinkListenerRuntime implements AutoCloseable
         return dispatcher;
     }
 
-    void start()
+    MavlinkTransport transport()
     {
-        transport.start(this::onData);
+        return transport;
     }
 
-    private void onData(ByteBuffer data)
+    MavlinkDialect dialect()
     {
-        if (transport.isStream())
-        {
-            onStreamData(data);
-        } else
-        {
-            onDatagram(data);
-        }
+        return dialect;
     }
 
-    private void onDatagram(ByteBuffer buffer)
+    void addTap(MavlinkFrameTap tap)
     {
-        int limit = buffer.limit();
-        int cursor = 0;
-        while (cursor < limit)
-        {
-            MavlinkParser.ParseResult res = parser.next(buffer, cursor, dialect);
-            if (res == null)
-            {
-                return;
-            }
-            dispatcher.dispatch(res.view());
-            cursor = res.startOffset() + res.length();
-        }
+        taps.add(tap);
     }
 
-    private void onStreamData(ByteBuffer chunk)
+    void addResource(AutoCloseable resource)
     {
-        if (streamBuffer == null)
-        {
-            streamBuffer = ByteBuffer.allocateDirect(STREAM_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
-            streamWritePos = 0;
-        }
-
-        int incoming = chunk.remaining();
-        ensureStreamCapacity(incoming);
-        streamBuffer.limit(streamBuffer.capacity());
-        streamBuffer.position(streamWritePos);
-        streamBuffer.put(chunk);
-        streamWritePos += incoming;
-
-        streamBuffer.limit(streamWritePos);
-        int limit = streamWritePos;
-        int cursor = 0;
-        while (cursor < limit)
-        {
-            MavlinkParser.ParseResult res = parser.next(streamBuffer, cursor, dialect);
-            if (res == null)
-            {
-                break;
-            }
-            dispatcher.dispatch(res.view());
-            cursor = res.startOffset() + res.length();
-        }
-
-        if (cursor > 0)
-        {
-            streamBuffer.position(cursor);
-            streamBuffer.compact();
-            streamWritePos = streamBuffer.position();
-        } else if (limit >= STREAM_RESYNC_THRESHOLD)
-        {
-            forceStreamResync(limit);
-        } else if (limit == streamBuffer.capacity())
-        {
-            streamWritePos = 0;
-        }
+        resources.add(resource);
     }
 
-    private void forceStreamResync(int limit)
+    void start()
     {
-        int magicOffset = findNextMagicOffset(1, limit);
-        if (magicOffset < 0)
-        {
-            streamWritePos = 0;
-            return;
-        }
-        streamBuffer.position(magicOffset);
-        streamBuffer.compact();
-        streamWritePos = streamBuffer.position();
+        MavlinkFrameTap tap = composeTaps();
+        transport.start(() -> newLane(tap));
     }
 
-    private int findNextMagicOffset(int from, int toExclusive)
+    private MavlinkInboundLane newLane(MavlinkFrameTap tap)
     {
-        for (int i = Math.max(0, from); i < toExclusive; i++)
-        {
-            int b = streamBuffer.get(i) & 0xFF;
-            if (b == MavlinkPacketView.MAGIC_V1 || b == MavlinkPacketView.MAGIC_V2)
-            {
-                return i;
-            }
-        }
-        return -1;
+        return new MavlinkInboundLane(parsers.get(), dialect, dispatcher, stats, transport.isStream(), tap, dedup);
     }
 
-    private void ensureStreamCapacity(int incoming)
+    private MavlinkFrameTap composeTaps()
     {
-        int required = streamWritePos + incoming;
-        if (required <= streamBuffer.capacity())
+        if (taps.isEmpty())
         {
-            return;
+            return null;
         }
-        int newCap = Math.max(required, streamBuffer.capacity() * 2);
-        ByteBuffer next = ByteBuffer.allocateDirect(newCap).order(ByteOrder.LITTLE_ENDIAN);
-        for (int i = 0; i < streamWritePos; i++)
+        if (taps.size() == 1)
         {
-            next.put(i, streamBuffer.get(i));
+            return taps.get(0);
         }
-        streamBuffer = next;
+        MavlinkFrameTap[] all = taps.toArray(new MavlinkFrameTap[0]);
+        return (packet, buffer, offset, length) ->
+        {
+            for (MavlinkFrameTap tap : all)
+            {
+                tap.onFrame(packet, buffer, offset, length);
+            }
+        };
     }
 
     @Override
     public void close()
     {
         transport.close();
+        for (AutoCloseable resource : resources)
+        {
+            try
+            {
+                resource.close();
+            } catch (Exception ignore)
+            {
+            }
+        }
+        resources.clear();
     }
 }
@@ -0,0 +1,266 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkParser;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+final class MavlinkListenerStats
+{
+    static final int LATENCY_BUCKETS = 40;
+    private static final int MAX_TRACKED_MESSAGE_ID = 1 << 16;
+
+    private final String listenerId;
+    private final String transport;
+    private final MavlinkRequestManager requestManager;
+    private final MavlinkDedupStage dedup;
+    private final List<MavlinkParser> parsers = new CopyOnWriteArrayList<>();
+    private final LongAdder retiredRejects = new LongAdder();
+    private final LongAdder packetsIn = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder packetsOut = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder handlerErrors = new LongAdder();
+    private final LongAdder otherMessages = new LongAdder();
+    private final LongAdder dispatchCount = new LongAdder();
+    private final LongAdder dispatchNanos = new LongAdder();
+    private final LongAdder[] latency = new LongAdder[LATENCY_BUCKETS];
+    private final LongAdder[] sendQueued = new LongAdder[MavlinkSendQueue.CLASSES];
+    private final LongAdder[] sendQueueNanos = new LongAdder[MavlinkSendQueue.CLASSES];
+    private final LongAdder[] sendQueueDrops = new LongAdder[MavlinkSendQueue.CLASSES];
+    private volatile LongAdder[] byMessageId = new LongAdder[0];
+    private volatile IntConsumer messageIdListener;
+
+    MavlinkListenerStats(String listenerId,
+                         String transport,
+                         MavlinkRequestManager requestManager,
+                         MavlinkDedupStage dedup)
+    {
+        this.listenerId = listenerId;
+        this.transport = transport;
+        this.requestManager = requestManager;
+        this.dedup = dedup;
+        for (int i = 0; i < LATENCY_BUCKETS; i++)
+        {
+            latency[i] = new LongAdder();
+        }
+        for (int i = 0; i < MavlinkSendQueue.CLASSES; i++)
+        {
+            sendQueued[i] = new LongAdder();
+            sendQueueNanos[i] = new LongAdder();
+            sendQueueDrops[i] = new LongAdder();
+        }
+    }
+
+    String listenerId()
+    {
+        return listenerId;
+    }
+
+    String transport()
+    {
+        return transport;
+    }
+
+    void addParser(MavlinkParser parser)
+    {
+        parsers.add(parser);
+    }
+
+    void removeParser(MavlinkParser parser)
+    {
+        if (parsers.remove(parser))
+        {
+            retiredRejects.add(parser.rejectedCount());
+        }
+    }
+
+    void onBytesIn(int bytes)
+    {
+        bytesIn.add(bytes);
+    }
+
+    void onPacketIn(int messageId)
+    {
+        packetsIn.increment();
+        LongAdder[] counters = byMessageId;
+        if (messageId < counters.length && counters[messageId] != null)
+        {
+            counters[messageId].increment();
+        } else
+        {
+            messageCounter(messageId).increment();
+        }
+    }
+
+    void onPacketOut(int bytes)
+    {
+        packetsOut.increment();
+        bytesOut.add(bytes);
+    }
+
+    void onPacketsOut(int packets, int bytes)
+    {
+        packetsOut.add(packets);
+        bytesOut.add(bytes);
+    }
+
+    void onHandlerError()
+    {
+        handlerErrors.increment();
+    }
+
+    void onDispatch(long nanos)
+    {
+        dispatchCount.increment();
+        dispatchNanos.add(nanos);
+        int bucket = nanos <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(nanos - 1);
+        latency[Math.min(bucket, LATENCY_BUCKETS - 1)].increment();
+    }
+
+    long packetsIn()
+    {
+        return packetsIn.sum();
+    }
+
+    long bytesIn()
+    {
+        return bytesIn.sum();
+    }
+
+    long packetsOut()
+    {
+        return packetsOut.sum();
+    }
+
+    long bytesOut()
+    {
+        return bytesOut.sum();
+    }
+
+    long handlerErrors()
+    {
+        return handlerErrors.sum();
+    }
+
+    long parserRejects()
+    {
+        long total = retiredRejects.sum();
+        for (MavlinkParser parser : parsers)
+        {
+            total += parser.rejectedCount();
+        }
+        return total;
+    }
+
+    long pendingRequests()
+    {
+        return requestManager.pendingCount();
+    }
+
+    long requestTimeouts()
+    {
+        return requestManager.timeoutCount();
+    }
+
+    MavlinkDedupStage dedup()
+    {
+        return dedup;
+    }
+
+    long otherMessages()
+    {
+        return otherMessages.sum();
+    }
+
+    long dispatchCount()
+    {
+        return dispatchCount.sum();
+    }
+
+    long dispatchNanos()
+    {
+        return dispatchNanos.sum();
+    }
+
+    void onSendQueued(int priority, long waitNanos)
+    {
+        sendQueued[priority].increment();
+        sendQueueNanos[priority].add(waitNanos);
+    }
+
+    void onSendQueueDrop(int priority)
+    {
+        sendQueueDrops[priority].increment();
+    }
+
+    long sendQueued(int priority)
+    {
+        return sendQueued[priority].sum();
+    }
+
+    long sendQueueNanos(int priority)
+    {
+        return sendQueueNanos[priority].sum();
+    }
+
+    long sendQueueDrops(int priority)
+    {
+        return sendQueueDrops[priority].sum();
+    }
+
+    // Cumulative, as histogram buckets are: samples that took at most 2^bucket ns.
+    long latencyAtMost(int bucket)
+    {
+        long sum = 0;
+        for (int i = 0; i <= bucket; i++)
+        {
+            sum += latency[i].sum();
+        }
+        return sum;
+    }
+
+    long messages(int messageId)
+    {
+        LongAdder[] counters = byMessageId;
+        return messageId < counters.length && counters[messageId] != null ? counters[messageId].sum() : 0;
+    }
+
+    synchronized void forEachMessageId(IntConsumer consumer)
+    {
+        LongAdder[] counters = byMessageId;
+        for (int i = 0; i < counters.length; i++)
+        {
+            if (counters[i] != null)
+            {
+                consumer.accept(i);
+            }
+        }
+        messageIdListener = consumer;
+    }
+
+    private synchronized LongAdder messageCounter(int messageId)
+    {
+        if (messageId < 0 || messageId >= MAX_TRACKED_MESSAGE_ID)
+        {
+            return otherMessages;
+        }
+        LongAdder[] counters = byMessageId;
+        if (messageId < counters.length && counters[messageId] != null)
+        {
+            return counters[messageId];
+        }
+        LongAdder[] next = new LongAdder[Math.max(counters.length, Integer.highestOneBit(messageId | 1) << 1)];
+        System.arraycopy(counters, 0, next, 0, counters.length);
+        LongAdder counter = new LongAdder();
+        next[messageId] = counter;
+        byMessageId = next;
+        IntConsumer listener = messageIdListener;
+        if (listener != null)
+        {
+            listener.accept(messageId);
+        }
+        return counter;
+    }
+}
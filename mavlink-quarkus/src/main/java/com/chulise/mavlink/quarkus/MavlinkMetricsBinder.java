@@ -0,0 +1,105 @@
+package com.chulise.mavlink.quarkus;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+public final class MavlinkMetricsBinder implements MeterBinder
+{
+    private final MavlinkClientRegistry registry;
+
+    public MavlinkMetricsBinder(MavlinkClientRegistry registry)
+    {
+        this.registry = registry;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meters)
+    {
+        for (MavlinkClient client : registry.all().values())
+        {
+            MavlinkListenerStats stats = client.stats();
+            if (stats != null)
+            {
+                bind(meters, stats);
+            }
+        }
+    }
+
+    private static void bind(MeterRegistry meters, MavlinkListenerStats stats)
+    {
+        Tags tags = Tags.of("listener", stats.listenerId(), "transport", stats.transport());
+
+        counter(meters, "mavlink.packets.in", tags, stats, MavlinkListenerStats::packetsIn);
+        counter(meters, "mavlink.bytes.in", tags, stats, MavlinkListenerStats::bytesIn);
+        counter(meters, "mavlink.packets.out", tags, stats, MavlinkListenerStats::packetsOut);
+        counter(meters, "mavlink.bytes.out", tags, stats, MavlinkListenerStats::bytesOut);
+        counter(meters, "mavlink.handler.errors", tags, stats, MavlinkListenerStats::handlerErrors);
+        counter(meters, "mavlink.parser.rejects", tags, stats, MavlinkListenerStats::parserRejects);
+        counter(meters, "mavlink.request.timeouts", tags, stats, MavlinkListenerStats::requestTimeouts);
+
+        MavlinkDedupStage dedup = stats.dedup();
+        if (dedup != null)
+        {
+            Tags dedupTags = tags.and("group", dedup.group());
+            FunctionCounter.builder("mavlink.dedup.first", dedup, MavlinkDedupStage::firstCopies)
+                    .tags(dedupTags)
+                    .register(meters);
+            FunctionCounter.builder("mavlink.dedup.duplicates", dedup, MavlinkDedupStage::duplicates)
+                    .tags(dedupTags)
+                    .register(meters);
+        }
+
+        Gauge.builder("mavlink.request.pending", stats, MavlinkListenerStats::pendingRequests)
+                .tags(tags)
+                .register(meters);
+
+        FunctionTimer.builder("mavlink.dispatch", stats,
+                        MavlinkListenerStats::dispatchCount,
+                        MavlinkListenerStats::dispatchNanos,
+                        TimeUnit.NANOSECONDS)
+                .tags(tags)
+                .register(meters);
+
+        for (int i = 0; i < MavlinkListenerStats.LATENCY_BUCKETS; i++)
+        {
+            int bucket = i;
+            String le = i == MavlinkListenerStats.LATENCY_BUCKETS - 1 ? "+Inf" : Long.toString(1L << i);
+            counter(meters, "mavlink.dispatch.latency", tags.and("le", le), stats, s -> s.latencyAtMost(bucket));
+        }
+
+        for (MavlinkPriority priority : MavlinkPriority.values())
+        {
+            int cls = priority.ordinal();
+            Tags queueTags = tags.and("priority", priority.name().toLowerCase());
+            FunctionTimer.builder("mavlink.send.queue", stats,
+                            s -> s.sendQueued(cls),
+                            s -> s.sendQueueNanos(cls),
+                            TimeUnit.NANOSECONDS)
+                    .tags(queueTags)
+                    .register(meters);
+            counter(meters, "mavlink.send.queue.drops", queueTags, stats, s -> s.sendQueueDrops(cls));
+        }
+
+        counter(meters, "mavlink.messages.in", tags.and("msgid", "other"), stats, MavlinkListenerStats::otherMessages);
+        stats.forEachMessageId(messageId ->
+                counter(meters, "mavlink.messages.in", tags.and("msgid", Integer.toString(messageId)), stats,
+                        s -> s.messages(messageId)));
+    }
+
+    private static void counter(MeterRegistry meters,
+                                String name,
+                                Tags tags,
+                                MavlinkListenerStats stats,
+                                ToDoubleFunction<MavlinkListenerStats> value)
+    {
+        FunctionCounter.builder(name, stats, value)
+                .tags(tags)
+                .register(meters);
+    }
+}
@@ -0,0 +1,495 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkPacketView;
+import com.chulise.mavlink.core.MavlinkView;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Periodic outbound streams scheduled on the listener's timer thread. Streams sit in a wheel of tick buckets; each
+// tick encodes the due ones from their payload templates and batches everything due for one destination. Batches are
+// written by the sender's own thread, so a transport that blocks (a full TCP socket) never stalls the shared timer.
+public final class MavlinkPeriodicSender implements AutoCloseable
+{
+    private static final int WHEEL_SIZE = 1024;
+    private static final int HEADER_LEN = MavlinkPacketView.HEADER_LEN_V2;
+    private static final int MAX_FRAME = HEADER_LEN + 255 + 2 + MavlinkPacketView.SIGNATURE_LEN;
+
+    private final MavlinkClient client;
+    private final MavlinkTimer timer;
+    private final long tickNanos;
+    private final long jitterTicks;
+    private final int maxBatchBytes;
+    private final long origin = System.nanoTime();
+    private final ConcurrentLinkedQueue<Stream> changes = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean ticking = new AtomicBoolean();
+    private final Runnable tickTask = this::tick;
+    // Owned by the timer thread.
+    private final List<List<Stream>> wheel;
+    private final Map<Integer, Target> targets = new HashMap<>();
+    private final ArrayList<Target> dirty = new ArrayList<>();
+    // Batch buffers cycle from free to ready (timer thread) and back (writer thread). They are allocated on demand,
+    // up to queuedBatches, so only bursts the writer cannot keep up with cost memory.
+    private final ArrayBlockingQueue<Batch> free;
+    private final ArrayBlockingQueue<Batch> ready;
+    private final int queuedBatches;
+    private final Thread writer;
+    private long processed;
+    private int allocatedBatches;
+    private volatile int active;
+    private volatile boolean closed;
+    private volatile long sendFailures;
+    private volatile long droppedBatches;
+
+    private MavlinkPeriodicSender(Builder builder)
+    {
+        this.client = builder.client;
+        this.timer = client.timer();
+        this.tickNanos = timer.tickNanos();
+        this.jitterTicks = TimeUnit.MILLISECONDS.toNanos(builder.jitterMs) / tickNanos;
+        this.maxBatchBytes = builder.maxBatchBytes;
+        this.wheel = new ArrayList<>(WHEEL_SIZE);
+        for (int i = 0; i < WHEEL_SIZE; i++)
+        {
+            wheel.add(new ArrayList<>());
+        }
+        this.free = new ArrayBlockingQueue<>(builder.queuedBatches);
+        this.ready = new ArrayBlockingQueue<>(builder.queuedBatches);
+        this.queuedBatches = builder.queuedBatches;
+        this.processed = currentTick();
+        this.writer = new Thread(this::write, "mavlink-periodic-" + client.id());
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public static Builder builder(MavlinkClient client)
+    {
+        return new Builder(client);
+    }
+
+    // type supplies the message id, CRC extra and lengths; payload packs the template once here and again on
+    // update(). sysId < 0 sends to the transport's default destination instead of routing to a vehicle.
+    public Stream add(int sysId, int compId, double rateHz, MavlinkView type, MavlinkClient.PacketWriter payload)
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("periodic sender closed");
+        }
+        Stream stream = new Stream(sysId, compId, type);
+        stream.update(payload);
+        stream.rateHz(rateHz);
+        return stream;
+    }
+
+    public int streams()
+    {
+        return active;
+    }
+
+    // Batches the transport rejected, for example because no route to the vehicle is known yet.
+    public long sendFailures()
+    {
+        return sendFailures;
+    }
+
+    // Batches dropped because the writer thread fell behind and every queued batch buffer was still in use.
+    public long droppedBatches()
+    {
+        return droppedBatches;
+    }
+
+    private long currentTick()
+    {
+        return (System.nanoTime() - origin) / tickNanos;
+    }
+
+    private void submit(Stream stream)
+    {
+        changes.add(stream);
+        if (ticking.compareAndSet(false, true))
+        {
+            timer.schedule(tickTask, 0, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void tick()
+    {
+        if (closed)
+        {
+            return;
+        }
+        try
+        {
+            advance();
+        } finally
+        {
+            // Rescheduled even when a tick throws, or the timer would swallow the exception and the sender would
+            // stay marked as ticking with nothing scheduled.
+            reschedule();
+        }
+    }
+
+    private void advance()
+    {
+        long current = currentTick();
+        if (active == 0)
+        {
+            // Nothing was scheduled while idle, so there are no skipped buckets to walk.
+            processed = current;
+        }
+        drainChanges(current);
+        // A late tick catches up on every bucket it skipped, but each stream still sends at most once.
+        while (processed < current)
+        {
+            processed++;
+            runBucket(processed, current);
+        }
+        for (int i = 0; i < dirty.size(); i++)
+        {
+            flush(dirty.get(i));
+        }
+        dirty.clear();
+    }
+
+    private void reschedule()
+    {
+        if (closed)
+        {
+            return;
+        }
+        if (active > 0)
+        {
+            timer.schedule(tickTask, tickNanos, TimeUnit.NANOSECONDS);
+            return;
+        }
+        ticking.set(false);
+        if (!changes.isEmpty() && ticking.compareAndSet(false, true))
+        {
+            timer.schedule(tickTask, 0, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void drainChanges(long current)
+    {
+        Stream stream;
+        while ((stream = changes.poll()) != null)
+        {
+            if (stream.slot >= 0)
+            {
+                wheel.get(stream.slot).remove(stream);
+                stream.slot = -1;
+                active--;
+            }
+            if (stream.cancelled)
+            {
+                continue;
+            }
+            if (stream.target == null)
+            {
+                stream.target = target(stream.sysId, stream.compId);
+            }
+            stream.periodTicks = Math.max(1, (long) (1_000_000_000L / stream.rateHz / tickNanos));
+            // Spread streams across their period so thousands of 1 Hz heartbeats do not leave in the same tick.
+            stream.baseTick = current + 1 + ThreadLocalRandom.current().nextLong(stream.periodTicks);
+            place(stream, stream.baseTick);
+            active++;
+        }
+    }
+
+    private void runBucket(long tick, long current)
+    {
+        List<Stream> bucket = wheel.get((int) (tick & (WHEEL_SIZE - 1)));
+        int i = 0;
+        while (i < bucket.size())
+        {
+            Stream stream = bucket.get(i);
+            if (stream.dueTick > tick)
+            {
+                i++;
+                continue;
+            }
+            int last = bucket.size() - 1;
+            bucket.set(i, bucket.get(last));
+            bucket.remove(last);
+            stream.slot = -1;
+            emit(stream);
+            stream.baseTick += stream.periodTicks;
+            if (stream.baseTick <= current)
+            {
+                // Fell behind (GC pause, overloaded timer): skip the missed sends instead of bursting them.
+                stream.baseTick = current + stream.periodTicks;
+            }
+            long due = stream.baseTick;
+            if (jitterTicks > 0)
+            {
+                due += ThreadLocalRandom.current().nextLong(-jitterTicks, jitterTicks + 1);
+            }
+            place(stream, Math.max(current + 1, due));
+        }
+    }
+
+    private void place(Stream stream, long due)
+    {
+        stream.dueTick = due;
+        stream.slot = (int) (due & (WHEEL_SIZE - 1));
+        wheel.get(stream.slot).add(stream);
+    }
+
+    private void emit(Stream stream)
+    {
+        Target target = stream.target;
+        if (target.length > 0 && target.length + MAX_FRAME > maxBatchBytes)
+        {
+            flush(target);
+        }
+        ByteBuffer buf = target.batch;
+        int off = target.length;
+        synchronized (stream)
+        {
+            buf.put(off + HEADER_LEN, stream.template, 0, stream.lengthV2);
+        }
+        // Each frame takes its own timestamp: a signing receiver drops a batch's later frames if they repeat one.
+        int written = client.writeFrame(buf, off, stream.messageId, stream.crcExtra, stream.lengthV2, stream.lengthV1);
+        target.length += written;
+        target.frames++;
+        stream.sent++;
+        if (!target.dirty)
+        {
+            target.dirty = true;
+            dirty.add(target);
+        }
+    }
+
+    private void flush(Target target)
+    {
+        if (target.length > 0)
+        {
+            Batch batch = free.poll();
+            if (batch == null && allocatedBatches < queuedBatches)
+            {
+                allocatedBatches++;
+                batch = new Batch(maxBatchBytes + MAX_FRAME);
+            }
+            if (batch == null)
+            {
+                droppedBatches++;
+            } else
+            {
+                batch.buffer.put(0, target.batch, 0, target.length);
+                batch.sysId = target.sysId;
+                batch.compId = target.compId;
+                batch.length = target.length;
+                batch.frames = target.frames;
+                ready.add(batch);
+            }
+        }
+        target.length = 0;
+        target.frames = 0;
+        target.dirty = false;
+    }
+
+    private Target target(int sysId, int compId)
+    {
+        int key = sysId < 0 ? -1 : ((sysId & 0xFF) << 8) | (compId & 0xFF);
+        Target target = targets.get(key);
+        if (target == null)
+        {
+            target = new Target(sysId < 0 ? -1 : sysId & 0xFF, compId, maxBatchBytes + MAX_FRAME);
+            targets.put(key, target);
+        }
+        return target;
+    }
+
+    private void write()
+    {
+        while (!closed)
+        {
+            Batch batch;
+            try
+            {
+                batch = ready.take();
+            } catch (InterruptedException e)
+            {
+                return;
+            }
+            try
+            {
+                client.sendFrames(batch.sysId, batch.compId, batch.buffer, 0, batch.length, batch.frames);
+            } catch (IllegalStateException e)
+            {
+                sendFailures++;
+            }
+            free.add(batch);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        closed = true;
+        writer.interrupt();
+    }
+
+    public final class Stream
+    {
+        private final int sysId;
+        private final int compId;
+        private final int messageId;
+        private final int crcExtra;
+        private final int lengthV1;
+        private final int lengthV2;
+        private final ByteBuffer template;
+        private volatile double rateHz;
+        private volatile boolean cancelled;
+        private volatile long sent;
+        // Owned by the timer thread.
+        private Target target;
+        private long periodTicks;
+        private long baseTick;
+        private long dueTick;
+        private int slot = -1;
+
+        private Stream(int sysId, int compId, MavlinkView type)
+        {
+            this.sysId = sysId;
+            this.compId = compId;
+            this.messageId = type.getMessageId();
+            this.crcExtra = type.getCrcExtra();
+            this.lengthV1 = type.getLengthV1();
+            this.lengthV2 = type.getLengthV2();
+            this.template = ByteBuffer.allocate(Math.max(1, lengthV2)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        public int sysId()
+        {
+            return sysId;
+        }
+
+        public int compId()
+        {
+            return compId;
+        }
+
+        public double rateHz()
+        {
+            return rateHz;
+        }
+
+        public long sent()
+        {
+            return sent;
+        }
+
+        // Takes effect from the next tick; the stream gets a fresh phase within the new period.
+        public void rateHz(double value)
+        {
+            if (!(value > 0))
+            {
+                throw new IllegalArgumentException("rate must be positive: " + value);
+            }
+            this.rateHz = value;
+            submit(this);
+        }
+
+        // Repacks the payload template; frames encoded after this call carry the new values.
+        public void update(MavlinkClient.PacketWriter payload)
+        {
+            synchronized (this)
+            {
+                for (int i = 0; i < lengthV2; i++)
+                {
+                    template.put(i, (byte) 0);
+                }
+                payload.write(template, 0);
+            }
+        }
+
+        public void cancel()
+        {
+            cancelled = true;
+            submit(this);
+        }
+    }
+
+    private static final class Target
+    {
+        final int sysId;
+        final int compId;
+        final ByteBuffer batch;
+        int length;
+        int frames;
+        boolean dirty;
+
+        Target(int sysId, int compId, int capacity)
+        {
+            this.sysId = sysId;
+            this.compId = compId;
+            this.batch = ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private static final class Batch
+    {
+        final ByteBuffer buffer;
+        int sysId;
+        int compId;
+        int length;
+        int frames;
+
+        Batch(int capacity)
+        {
+            this.buffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    public static final class Builder
+    {
+        private final MavlinkClient client;
+        private long jitterMs;
+        private int maxBatchBytes = 1400;
+        private int queuedBatches = 4096;
+
+        private Builder(MavlinkClient client)
+        {
+            if (client == null)
+            {
+                throw new IllegalArgumentException("client is null");
+            }
+            this.client = client;
+        }
+
+        // Random offset of up to +/- this much applied to every send, on top of the random starting phase.
+        public Builder jitterMs(long value)
+        {
+            this.jitterMs = Math.max(0, value);
+            return this;
+        }
+
+        // Frames for one destination are coalesced into a single write up to this size; 1400 keeps UDP unfragmented.
+        public Builder maxBatchBytes(int value)
+        {
+            this.maxBatchBytes = Math.max(MAX_FRAME, value);
+            return this;
+        }
+
+        // Batches waiting for the writer thread; further batches are dropped and counted until it catches up.
+        public Builder queuedBatches(int value)
+        {
+            this.queuedBatches = Math.max(1, value);
+            return this;
+        }
+
+        public MavlinkPeriodicSender build()
+        {
+            return new MavlinkPeriodicSender(this);
+        }
+    }
+}
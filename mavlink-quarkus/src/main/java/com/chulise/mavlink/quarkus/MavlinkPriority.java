@@ -0,0 +1,11 @@
+package com.chulise.mavlink.quarkus;
+
+// Outbound classes for the asynchronous send path, highest first.
+public enum MavlinkPriority
+{
+    // Commands and manual control that must not wait behind anything else.
+    CONTROL,
+    NORMAL,
+    // Log downloads, FTP and other transfers that can absorb delay.
+    BULK
+}
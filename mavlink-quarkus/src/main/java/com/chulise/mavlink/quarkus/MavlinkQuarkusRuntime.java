@@ -1,8 +1,12 @@
 package com.chulise.mavlink.quarkus;
 
+import com.chulise.mavlink.core.MavlinkIdleStrategy;
+import com.chulise.mavlink.core.MavlinkPacketView;
 import com.chulise.mavlink.core.MavlinkPacketWriter;
 import com.chulise.mavlink.core.MavlinkParser;
 import com.chulise.mavlink.core.MavlinkView;
+import com.chulise.mavlink.core.shm.MavlinkShmRing;
+import com.chulise.mavlink.core.tlog.TlogRecorder;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -16,8 +20,12 @@ import jakarta.enterprise.inject.Instance;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.eclipse.microprofile.config.Config;
 import org.eclipse.microprofile.config.ConfigProvider;
@@ -44,6 +52,7 @@ public class MavlinkQuarkusRuntime
     MavlinkClientRegistry registry;
 
     private final List<MavlinkListenerRuntime> runtimes = new ArrayList<>();
+    private MavlinkTimer timer;
 
     @PostConstruct
     void init()
@@ -55,28 +64,47 @@ public class MavlinkQuarkusRuntime
             return;
         }
 
+        timer = new MavlinkTimer("mavlink-timer");
+        Map<String, MavlinkDedupWindow> dedupGroups = new HashMap<>();
         for (MavlinkListenerConfig cfg : listeners)
         {
-            MavlinkParser parser = buildParser(cfg.parser);
-            MavlinkRequestManager requestManager = buildRequestManager(cfg.request);
-            MavlinkDispatcher dispatcher = new MavlinkDispatcher(requestManager);
+            MavlinkParserConfig parserConfig = cfg.parser;
+            MavlinkRequestManager requestManager = buildRequestManager(cfg.request, timer);
+            MavlinkDedupStage dedup = buildDedupStage(cfg.dedup, dedupGroups);
+            MavlinkListenerStats stats = cfg.metricsEnabled == null || cfg.metricsEnabled
+                    ? new MavlinkListenerStats(cfg.id, transportName(cfg), requestManager, dedup)
+                    : null;
+            MavlinkDispatcher dispatcher = new MavlinkDispatcher(requestManager, stats);
+            if (cfg.rateLimit != null && !cfg.rateLimit.rates.isEmpty())
+            {
+                dispatcher.rateLimits(cfg.rateLimit.rates, cfg.rateLimit.latest != null && cfg.rateLimit.latest);
+            }
             MavlinkTransport transport = buildTransport(cfg);
             MavlinkPacketWriter.Encoder encoder = buildEncoder(cfg.writer);
             MavlinkRequestOptions defaultOptions = buildDefaultRequestOptions(cfg.request);
             com.chulise.mavlink.core.MavlinkDialect dialect = MavlinkDialectResolver.resolve(cfg.dialect);
 
             MavlinkListenerRuntime runtime = new MavlinkListenerRuntime(cfg.id,
-                    parser,
+                    () -> buildParser(parserConfig),
                     dispatcher,
                     transport,
                     encoder,
                     requestManager,
                     defaultOptions,
-                    dialect);
+                    dialect,
+                    stats,
+                    dedup);
+            installRecorder(runtime, cfg.tlog);
+            installShmPublisher(runtime, cfg.shm);
+            installStateCache(runtime, cfg.stateCache);
+            installHistory(runtime, cfg.history);
+            installSendQueue(runtime, cfg.sendQueue, stats);
             runtimes.add(runtime);
             registry.register(runtime.client());
         }
 
+        installRouter(listeners, MavlinkConfigReader.readRouter(config));
+
         if (!registerGeneratedHandlers())
         {
             registerHandlers();
@@ -96,6 +124,164 @@ public class MavlinkQuarkusRuntime
             runtime.close();
         }
         runtimes.clear();
+        if (timer != null)
+        {
+            timer.close();
+            timer = null;
+        }
+    }
+
+    private static void installRecorder(MavlinkListenerRuntime runtime, MavlinkTlogConfig cfg)
+    {
+        if (cfg == null || cfg.directory == null || cfg.directory.isBlank())
+        {
+            return;
+        }
+        TlogRecorder.Builder builder = TlogRecorder.builder(Path.of(cfg.directory.trim()))
+                .prefix(cfg.prefix != null ? cfg.prefix : runtime.id());
+        if (cfg.segmentSize != null) builder.segmentSize(cfg.segmentSize);
+        if (cfg.rollIntervalMs != null) builder.rollIntervalMs(cfg.rollIntervalMs);
+        if (cfg.flushIntervalMs != null) builder.flushIntervalMs(cfg.flushIntervalMs);
+        if (cfg.index != null) builder.index(cfg.index);
+        TlogRecorder recorder = builder.build();
+        runtime.addTap((packet, buffer, offset, length) -> recorder.append(buffer, offset, length));
+        runtime.addResource(recorder);
+    }
+
+    private static void installStateCache(MavlinkListenerRuntime runtime, MavlinkStateCacheConfig cfg)
+    {
+        if (cfg == null || cfg.enabled == null || !cfg.enabled)
+        {
+            return;
+        }
+        TelemetryStateCache cache = new TelemetryStateCache(cfg.capacity != null ? cfg.capacity : 1024,
+                parseIds(cfg.messageIds));
+        runtime.dispatcher().registerRaw(packet -> cache.update((MavlinkPacketView) packet));
+        runtime.client().stateCache(cache);
+    }
+
+    private static void installHistory(MavlinkListenerRuntime runtime, MavlinkHistoryConfig cfg)
+    {
+        if (cfg == null || cfg.messageIds.isEmpty())
+        {
+            return;
+        }
+        TelemetryHistory history = new TelemetryHistory(parseIds(cfg.messageIds),
+                cfg.depth != null ? cfg.depth : 1024,
+                cfg.maxSeries != null ? cfg.maxSeries : 256);
+        runtime.dispatcher().registerRaw(packet -> history.record((MavlinkPacketView) packet));
+        runtime.client().history(history);
+    }
+
+    private static void installSendQueue(MavlinkListenerRuntime runtime,
+                                         MavlinkSendQueueConfig cfg,
+                                         MavlinkListenerStats stats)
+    {
+        if (cfg == null || cfg.enabled == null || !cfg.enabled)
+        {
+            return;
+        }
+        boolean weighted;
+        if (cfg.policy == null || cfg.policy.isBlank() || "strict".equalsIgnoreCase(cfg.policy.trim()))
+        {
+            weighted = false;
+        } else if ("weighted".equalsIgnoreCase(cfg.policy.trim()))
+        {
+            weighted = true;
+        } else
+        {
+            throw new IllegalStateException("unknown send-queue policy: " + cfg.policy);
+        }
+        int[] weights = {8, 4, 1};
+        int[] configured = parseIds(cfg.weights);
+        for (int i = 0; i < Math.min(weights.length, configured.length); i++)
+        {
+            weights[i] = Math.max(1, configured[i]);
+        }
+        long[] budgets = {
+                cfg.controlBudget != null ? Math.max(0, cfg.controlBudget) : 0,
+                cfg.normalBudget != null ? Math.max(0, cfg.normalBudget) : 0,
+                cfg.bulkBudget != null ? Math.max(0, cfg.bulkBudget) : 0
+        };
+        MavlinkSendQueue queue = new MavlinkSendQueue(runtime.id(), runtime.transport(), stats,
+                cfg.capacity != null ? cfg.capacity : 1024, weighted, weights, budgets,
+                MavlinkIdleStrategy.fromName(cfg.idle));
+        runtime.client().sendQueue(queue);
+        runtime.addResource(queue);
+    }
+
+    private static int[] parseIds(List<String> values)
+    {
+        int[] ids = new int[values.size()];
+        for (int i = 0; i < ids.length; i++)
+        {
+            ids[i] = Integer.parseInt(values.get(i));
+        }
+        return ids;
+    }
+
+    // Mirrors every frame the listener receives into a ring other processes subscribe to with transport=shm.
+    private static void installShmPublisher(MavlinkListenerRuntime runtime, MavlinkShmConfig cfg)
+    {
+        if (cfg == null || cfg.publishPath == null || cfg.publishPath.isBlank())
+        {
+            return;
+        }
+        MavlinkShmRing ring = MavlinkShmRing.create(Path.of(cfg.publishPath.trim()),
+                cfg.slots != null ? cfg.slots : ShmTransport.DEFAULT_SLOTS,
+                cfg.slotSize != null ? cfg.slotSize : ShmTransport.DEFAULT_SLOT_SIZE);
+        MavlinkShmRing.Publisher publisher = ring.publisher();
+        runtime.addTap((packet, buffer, offset, length) ->
+        {
+            // Lanes of a stream listener run concurrently; the ring takes a single producer.
+            synchronized (publisher)
+            {
+                publisher.publish(buffer, offset, length);
+            }
+        });
+        runtime.addResource(ring);
+    }
+
+    private void installRouter(List<MavlinkListenerConfig> listeners, MavlinkRouterConfig cfg)
+    {
+        boolean enabled = false;
+        for (MavlinkListenerConfig listener : listeners)
+        {
+            enabled |= !listener.forwardTo.isEmpty();
+        }
+        if (!enabled)
+        {
+            return;
+        }
+
+        MavlinkTransport[] transports = new MavlinkTransport[runtimes.size()];
+        for (int i = 0; i < transports.length; i++)
+        {
+            transports[i] = runtimes.get(i).transport();
+        }
+        long windowMs = cfg.dedupWindowMs != null ? cfg.dedupWindowMs : 500;
+        int capacity = cfg.dedupCapacity != null ? cfg.dedupCapacity : 4096;
+        MavlinkDedupWindow dedup = windowMs > 0 ? new MavlinkDedupWindow(capacity, windowMs) : null;
+        MavlinkRouter router = new MavlinkRouter(transports, dedup);
+
+        for (int i = 0; i < runtimes.size(); i++)
+        {
+            MavlinkListenerRuntime runtime = runtimes.get(i);
+            long forwardMask = 0;
+            for (String target : listeners.get(i).forwardTo)
+            {
+                int idx = runtimes.indexOf(findRuntime(target));
+                if (idx < 0)
+                {
+                    throw new IllegalStateException("router target listener not found: " + target);
+                }
+                forwardMask |= 1L << idx;
+            }
+            com.chulise.mavlink.core.MavlinkDialect dialect = runtime.dialect() != null
+                    ? runtime.dialect()
+                    : MavlinkDialectResolver.resolve("common");
+            runtime.addTap(router.tap(i, forwardMask, dialect));
+        }
     }
 
     private void registerHandlers()
@@ -175,7 +361,7 @@ public class MavlinkQuarkusRuntime
         int messageId = resolveMessageId(sub, typed);
         ThreadLocal<? extends MavlinkView> pool = ThreadLocal.withInitial(() -> newViewInstance(typed));
 
-        runtime.dispatcher().addHandler(messageId, typed, pool, invoker);
+        runtime.dispatcher().addHandler(messageId, typed, pool, invoker, sub.maxRateHz(), sub.latest());
     }
 
     private static java.lang.invoke.MethodHandle unreflect(Method method, Object instance)
@@ -252,12 +438,26 @@ public class MavlinkQuarkusRuntime
         return builder.build();
     }
 
-    private static MavlinkRequestManager buildRequestManager(MavlinkRequestConfig cfg)
+    private static MavlinkRequestManager buildRequestManager(MavlinkRequestConfig cfg, MavlinkTimer timer)
     {
         long timeout = cfg != null && cfg.timeoutMs != null ? cfg.timeoutMs : 1000;
         int maxPending = cfg != null && cfg.maxPending != null ? cfg.maxPending : 1024;
+        int responsePoolSize = cfg != null && cfg.responsePoolSize != null ? cfg.responsePoolSize : 64;
         MavlinkResponseMatcher matcher = MavlinkResponseMatchers.fromConfig(cfg == null ? null : cfg.defaultMatch);
-        return new MavlinkRequestManager(timeout, maxPending, matcher);
+        return new MavlinkRequestManager(timeout, maxPending, matcher, timer, responsePoolSize);
+    }
+
+    private static MavlinkDedupStage buildDedupStage(MavlinkDedupConfig cfg, Map<String, MavlinkDedupWindow> groups)
+    {
+        if (cfg == null || cfg.group == null || cfg.group.isBlank())
+        {
+            return null;
+        }
+        String group = cfg.group.trim();
+        MavlinkDedupWindow window = groups.computeIfAbsent(group, g -> new MavlinkDedupWindow(
+                cfg.capacity != null ? cfg.capacity : 4096,
+                cfg.windowMs != null ? cfg.windowMs : 500));
+        return new MavlinkDedupStage(group, window);
     }
 
     private static MavlinkRequestOptions buildDefaultRequestOptions(MavlinkRequestConfig cfg)
@@ -282,14 +482,37 @@ public class MavlinkQuarkusRuntime
         return builder.build();
     }
 
+    private static String transportName(MavlinkListenerConfig cfg)
+    {
+        return cfg.transport == null ? "udp" : cfg.transport.trim().toLowerCase();
+    }
+
     private static MavlinkTransport buildTransport(MavlinkListenerConfig cfg)
     {
+        String transport = transportName(cfg);
+        if ("unix".equals(transport))
+        {
+            UnixDomainSocketAddress remote = MavlinkSocketAddress.parseUnix(cfg.remote);
+            if (remote == null)
+            {
+                throw new IllegalArgumentException("unix transport requires remote socket path");
+            }
+            return new TcpTransport(null, remote, 4096);
+        }
+        if ("unix-server".equals(transport) || "unix_server".equals(transport))
+        {
+            UnixDomainSocketAddress bind = MavlinkSocketAddress.parseUnix(cfg.bind);
+            if (bind == null)
+            {
+                throw new IllegalArgumentException("unix-server transport requires bind socket path");
+            }
+            return new TcpServerTransport(bind, 4096);
+        }
         InetSocketAddress bind = MavlinkSocketAddress.parse(cfg.bind);
         InetSocketAddress remote = MavlinkSocketAddress.parse(cfg.remote);
-        String transport = cfg.transport == null ? "udp" : cfg.transport.trim().toLowerCase();
         if ("udp".equals(transport))
         {
-            return new UdpTransport(bind, remote, 2048);
+            return new UdpTransport(bind, remote, cfg.udp);
         }
         if ("tcp".equals(transport))
         {
@@ -299,6 +522,14 @@ public class MavlinkQuarkusRuntime
         {
             return new TcpServerTransport(bind, 4096);
         }
+        if ("replay".equals(transport))
+        {
+            return new ReplayTransport(cfg.replay);
+        }
+        if ("shm".equals(transport))
+        {
+            return new ShmTransport(cfg.shm);
+        }
         throw new IllegalArgumentException("unsupported transport: " + cfg.transport);
     }
 
@@ -0,0 +1,15 @@
+package com.chulise.mavlink.quarkus;
+
+import java.util.Map;
+
+final class MavlinkRateLimitConfig
+{
+    final Map<Integer, Double> rates;
+    final Boolean latest;
+
+    MavlinkRateLimitConfig(Map<Integer, Double> rates, Boolean latest)
+    {
+        this.rates = rates;
+        this.latest = latest;
+    }
+}
@@ -0,0 +1,147 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkPacketView;
+import com.chulise.mavlink.core.MavlinkView;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// GCRA per sysid for one handler: a packet is admitted once its sender's theoretical arrival time has passed, which
+// only needs the header. In latest mode the newest dropped payload is kept and delivered from the listener's timer
+// when the next slot opens, so the handler always ends up seeing the last value of a burst.
+final class MavlinkRateLimiter
+{
+    private static final int MAX_PAYLOAD = 255;
+
+    private final long intervalNanos;
+    private final long origin = System.nanoTime();
+    private final AtomicLongArray next = new AtomicLongArray(256);
+    private final boolean latest;
+    private final MavlinkHandlerInvoker handler;
+    private final ThreadLocal<? extends MavlinkView> viewPool;
+    private final MavlinkTimer timer;
+    private final MavlinkListenerStats stats;
+    private ByteBuffer[] pending;
+    private int[] pendingLength;
+    private boolean[] scheduled;
+    private ByteBuffer out;
+
+    MavlinkRateLimiter(double maxRateHz,
+                       boolean latest,
+                       MavlinkHandlerInvoker handler,
+                       ThreadLocal<? extends MavlinkView> viewPool,
+                       MavlinkTimer timer,
+                       MavlinkListenerStats stats)
+    {
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / maxRateHz));
+        this.latest = latest && timer != null;
+        this.handler = handler;
+        this.viewPool = viewPool;
+        this.timer = timer;
+        this.stats = stats;
+        if (this.latest)
+        {
+            this.pending = new ByteBuffer[256];
+            this.pendingLength = new int[256];
+            Arrays.fill(pendingLength, -1);
+            this.scheduled = new boolean[256];
+            this.out = ByteBuffer.allocate(MAX_PAYLOAD + 1).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    boolean tryAcquire(MavlinkPacketView packet)
+    {
+        int sysId = packet.getSysId() & 0xFF;
+        if (acquire(sysId, System.nanoTime() - origin))
+        {
+            if (latest)
+            {
+                synchronized (this)
+                {
+                    pendingLength[sysId] = -1;
+                }
+            }
+            return true;
+        }
+        if (latest)
+        {
+            hold(sysId, packet);
+        }
+        return false;
+    }
+
+    // The next slot follows the previous one rather than the admitted packet, so jitter in a steady stream does not
+    // pull the delivered rate below the limit; after a gap the schedule restarts from now.
+    private boolean acquire(int sysId, long now)
+    {
+        while (true)
+        {
+            long tat = next.get(sysId);
+            if (now < tat)
+            {
+                return false;
+            }
+            long base = now - tat < intervalNanos ? tat : now;
+            if (next.compareAndSet(sysId, tat, base + intervalNanos))
+            {
+                return true;
+            }
+        }
+    }
+
+    private synchronized void hold(int sysId, MavlinkPacketView packet)
+    {
+        ByteBuffer buffer = pending[sysId];
+        if (buffer == null)
+        {
+            buffer = ByteBuffer.allocate(MAX_PAYLOAD + 1).order(ByteOrder.LITTLE_ENDIAN);
+            pending[sysId] = buffer;
+        }
+        int length = Math.min(packet.getPayloadLength(), MAX_PAYLOAD);
+        buffer.put(0, packet.getBuffer(), packet.getPayloadOffset(), length);
+        pendingLength[sysId] = length;
+        if (!scheduled[sysId])
+        {
+            scheduled[sysId] = true;
+            schedule(sysId);
+        }
+    }
+
+    private void schedule(int sysId)
+    {
+        long delay = Math.max(0, next.get(sysId) - (System.nanoTime() - origin));
+        timer.schedule(() -> flush(sysId), delay, TimeUnit.NANOSECONDS);
+    }
+
+    // Runs on the timer thread, as does the handler call for the held value.
+    private void flush(int sysId)
+    {
+        synchronized (this)
+        {
+            int length = pendingLength[sysId];
+            if (length < 0)
+            {
+                scheduled[sysId] = false;
+                return;
+            }
+            if (!acquire(sysId, System.nanoTime() - origin))
+            {
+                schedule(sysId);
+                return;
+            }
+            scheduled[sysId] = false;
+            pendingLength[sysId] = -1;
+            out.put(0, pending[sysId], 0, length);
+            // Trimmed extension fields must read as zero.
+            for (int i = length; i <= MAX_PAYLOAD; i++)
+            {
+                out.put(i, (byte) 0);
+            }
+        }
+        MavlinkView view = viewPool.get();
+        view.wrapPayload(out, 0);
+        MavlinkDispatcher.invoke(handler, view, stats);
+    }
+}
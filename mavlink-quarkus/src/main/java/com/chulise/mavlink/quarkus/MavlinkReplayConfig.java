@@ -0,0 +1,19 @@
+package com.chulise.mavlink.quarkus;
+
+import java.util.List;
+
+final class MavlinkReplayConfig
+{
+    final List<String> files;
+    final Float rate;
+    final Boolean loop;
+    final Long spinNanos;
+
+    MavlinkReplayConfig(List<String> files, Float rate, Boolean loop, Long spinNanos)
+    {
+        this.files = files;
+        this.rate = rate;
+        this.loop = loop;
+        this.spinNanos = spinNanos;
+    }
+}
@@ -5,6 +5,7 @@ final class MavlinkRequestConfig
     final String defaultMatch;
     final Long timeoutMs;
     final Integer maxPending;
+    final Integer responsePoolSize;
     final Integer expectedSysId;
     final Integer expectedCompId;
     final Integer expectedLinkId;
@@ -12,6 +13,7 @@ final class MavlinkRequestConfig
     MavlinkRequestConfig(String defaultMatch,
                          Long timeoutMs,
                          Integer maxPending,
+                         Integer responsePoolSize,
                          Integer expectedSysId,
                          Integer expectedCompId,
                          Integer expectedLinkId)
@@ -19,6 +21,7 @@ final class MavlinkRequestConfig
         this.defaultMatch = defaultMatch;
         this.timeoutMs = timeoutMs;
         this.maxPending = maxPending;
+        this.responsePoolSize = responsePoolSize;
         this.expectedSysId = expectedSysId;
         this.expectedCompId = expectedCompId;
         this.expectedLinkId = expectedLinkId;
@@ -1,127 +1,235 @@
 package com.chulise.mavlink.quarkus;
 
 import com.chulise.mavlink.core.MavlinkPacketView;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
+import com.chulise.mavlink.core.MavlinkViewFactory;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 final class MavlinkRequestManager
 {
-    private final Map<Integer, List<PendingRequest>> pending = new ConcurrentHashMap<>();
+    private static final int WILDCARD = 0xFF;
+    private static final long UNKEYED = 0xFF_FFFF_FFFFL;
+    // Routes are never removed and every inbound packet scans them, so correlations must be shared constants.
+    private static final int MAX_ROUTES_PER_MESSAGE = 8;
+
+    private final PendingRequestTable table = new PendingRequestTable();
+    private final AtomicInteger exactCount = new AtomicInteger();
+    private final AtomicInteger wildcardCount = new AtomicInteger();
+    private final AtomicInteger unkeyedCount = new AtomicInteger();
+    private final LongAdder timeouts = new LongAdder();
     private final long defaultTimeoutMs;
     private final int maxPending;
     private final MavlinkResponseMatcher defaultMatcher;
-    private volatile long lastSweepTime;
+    private final MavlinkTimer timer;
+    private final MavlinkResponsePool responsePool;
+    private volatile Route[] routes = new Route[0];
 
-    MavlinkRequestManager(long defaultTimeoutMs, int maxPending, MavlinkResponseMatcher defaultMatcher)
+    MavlinkRequestManager(long defaultTimeoutMs,
+                          int maxPending,
+                          MavlinkResponseMatcher defaultMatcher,
+                          MavlinkTimer timer,
+                          int responsePoolSize)
     {
         this.defaultTimeoutMs = Math.max(0, defaultTimeoutMs);
         this.maxPending = Math.max(1, maxPending);
         this.defaultMatcher = defaultMatcher;
+        this.timer = timer;
+        this.responsePool = new MavlinkResponsePool(responsePoolSize);
+    }
+
+    MavlinkTimer timer()
+    {
+        return timer;
+    }
+
+    int pendingCount()
+    {
+        return table.size();
+    }
+
+    long timeoutCount()
+    {
+        return timeouts.sum();
     }
 
     <T> CompletableFuture<T> register(int messageId,
-                                      Class<? extends com.chulise.mavlink.core.MavlinkView> responseType,
+                                      MavlinkViewFactory<?> factory,
+                                      boolean pooled,
                                       MavlinkRequestOptions options)
     {
         MavlinkRequestOptions opts = options == null ? MavlinkRequestOptions.builder().build() : options;
         long timeoutMs = opts.timeoutMs > 0 ? opts.timeoutMs : defaultTimeoutMs;
-        long expireAt = timeoutMs > 0 ? System.currentTimeMillis() + timeoutMs : Long.MAX_VALUE;
 
         MavlinkResponseMatcher matcher = opts.matcher != null ? opts.matcher : defaultMatcher;
         CompletableFuture<T> future = new CompletableFuture<>();
 
         PendingRequest req = new PendingRequest(messageId,
-                expireAt,
                 opts.expectedSysId,
                 opts.expectedCompId,
                 opts.expectedLinkId,
                 matcher,
                 future,
-                responseType);
+                factory,
+                pooled ? responsePool : null);
 
-        List<PendingRequest> list = pending.computeIfAbsent(messageId, k -> new ArrayList<>());
-        synchronized (list)
+        long key;
+        AtomicInteger counter;
+        MavlinkCorrelation correlation = matcher == null ? null : matcher.correlation();
+        if (correlation == null)
         {
-            if (list.size() >= maxPending)
+            key = unkeyed(messageId);
+            counter = unkeyedCount;
+        } else
+        {
+            if (!addRoute(messageId, correlation))
             {
-                future.completeExceptionally(new IllegalStateException("too many pending requests"));
+                future.completeExceptionally(new IllegalStateException("too many correlations for message "
+                        + messageId + "; reuse one MavlinkCorrelation instance per key kind"));
                 return future;
             }
-            list.add(req);
+            boolean exact = opts.expectedSysId >= 0 && opts.expectedCompId >= 0;
+            key = exact
+                    ? key(messageId, opts.expectedSysId, opts.expectedCompId, matcher.correlationKey())
+                    : key(messageId, WILDCARD, WILDCARD, matcher.correlationKey());
+            counter = exact ? exactCount : wildcardCount;
+        }
+
+        // Everything a match or expiry touches is set before the table publishes the request.
+        req.counter = counter;
+        counter.incrementAndGet();
+        if (timeoutMs > 0)
+        {
+            req.timeout = timer.schedule(() -> expire(req), timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        if (!table.add(key, req, maxPending))
+        {
+            counter.decrementAndGet();
+            if (req.timeout != null)
+            {
+                req.timeout.cancel();
+            }
+            future.completeExceptionally(new IllegalStateException("too many pending requests"));
+            return future;
+        }
+        if (req.expired)
+        {
+            // The timer fired before the add landed and found nothing to remove.
+            expire(req);
         }
         return future;
     }
 
     void onPacket(MavlinkPacketView packet)
     {
-        List<PendingRequest> list = pending.get(packet.getMessageId());
-        if (list == null)
+        if (table.size() == 0)
         {
-            maybeSweep();
             return;
         }
 
+        int messageId = packet.getMessageId();
         PendingRequest matched = null;
-        synchronized (list)
+        if (exactCount.get() > 0 || wildcardCount.get() > 0)
         {
-            Iterator<PendingRequest> it = list.iterator();
-            while (it.hasNext())
+            for (Route route : routes)
             {
-                PendingRequest req = it.next();
-                if (req.matches(packet))
+                if (route.messageId != messageId)
+                {
+                    continue;
+                }
+                int correlationKey = route.correlation.key(packet);
+                if (exactCount.get() > 0)
+                {
+                    matched = table.removeMatch(key(messageId, packet.getSysId(), packet.getCompId(), correlationKey), packet);
+                }
+                if (matched == null && wildcardCount.get() > 0)
+                {
+                    matched = table.removeMatch(key(messageId, WILDCARD, WILDCARD, correlationKey), packet);
+                }
+                if (matched != null)
                 {
-                    matched = req;
-                    it.remove();
                     break;
                 }
             }
         }
+        if (matched == null && unkeyedCount.get() > 0)
+        {
+            matched = table.removeMatch(unkeyed(messageId), packet);
+        }
 
         if (matched != null)
         {
+            matched.counter.decrementAndGet();
+            MavlinkTimer.Timeout timeout = matched.timeout;
+            if (timeout != null)
+            {
+                timeout.cancel();
+            }
             matched.completeWithCopy(packet);
         }
-
-        maybeSweep();
     }
 
-    private void maybeSweep()
+    private void expire(PendingRequest req)
     {
-        long now = System.currentTimeMillis();
-        if (now - lastSweepTime < 500)
+        req.expired = true;
+        if (table.remove(req))
         {
-            return;
+            req.counter.decrementAndGet();
+            timeouts.increment();
+            req.future.completeExceptionally(new MavlinkTimeoutException("request timeout"));
         }
-        lastSweepTime = now;
-        sweepExpired(now);
     }
 
-    private void sweepExpired(long now)
+    private synchronized boolean addRoute(int messageId, MavlinkCorrelation correlation)
     {
-        for (Map.Entry<Integer, List<PendingRequest>> entry : pending.entrySet())
+        Route[] current = routes;
+        int sameMessage = 0;
+        for (Route route : current)
         {
-            List<PendingRequest> list = entry.getValue();
-            synchronized (list)
+            if (route.messageId != messageId)
             {
-                Iterator<PendingRequest> it = list.iterator();
-                while (it.hasNext())
-                {
-                    PendingRequest req = it.next();
-                    if (req.expireAt <= now)
-                    {
-                        req.future.completeExceptionally(new IllegalStateException("request timeout"));
-                        it.remove();
-                    }
-                }
-                if (list.isEmpty())
-                {
-                    pending.remove(entry.getKey(), list);
-                }
+                continue;
             }
+            if (route.correlation == correlation)
+            {
+                return true;
+            }
+            sameMessage++;
+        }
+        if (sameMessage >= MAX_ROUTES_PER_MESSAGE)
+        {
+            return false;
+        }
+        Route[] next = new Route[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        next[current.length] = new Route(messageId, correlation);
+        routes = next;
+        return true;
+    }
+
+    private static long key(int messageId, int sysId, int compId, int correlationKey)
+    {
+        return ((long) messageId << 40)
+                | ((long) (sysId & 0xFF) << 32)
+                | ((long) (compId & 0xFF) << 24)
+                | (correlationKey & 0xFF_FFFFL);
+    }
+
+    private static long unkeyed(int messageId)
+    {
+        return ((long) messageId << 40) | UNKEYED;
+    }
+
+    private static final class Route
+    {
+        final int messageId;
+        final MavlinkCorrelation correlation;
+
+        Route(int messageId, MavlinkCorrelation correlation)
+        {
+            this.messageId = messageId;
+            this.correlation = correlation;
         }
     }
 }
@@ -0,0 +1,118 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkPacketView;
+import com.chulise.mavlink.core.MavlinkView;
+import com.chulise.mavlink.core.MavlinkViewFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class MavlinkResponse<T extends MavlinkView> implements AutoCloseable
+{
+    private static final int MAX_PAYLOAD_LEN = 255;
+
+    private final MavlinkResponsePool pool;
+    private final ByteBuffer buffer = ByteBuffer.allocate(MAX_PAYLOAD_LEN).order(ByteOrder.LITTLE_ENDIAN);
+    private final AtomicInteger refCnt = new AtomicInteger();
+    private MavlinkViewFactory<?> factory;
+    private MavlinkView view;
+    private int messageId;
+    private int sysId;
+    private int compId;
+    private int sequence;
+
+    MavlinkResponse(MavlinkResponsePool pool)
+    {
+        this.pool = pool;
+    }
+
+    void fill(MavlinkPacketView packet, MavlinkViewFactory<?> factory)
+    {
+        if (this.factory != factory)
+        {
+            this.view = factory.newView();
+            this.factory = factory;
+        }
+        int len = packet.getPayloadLength();
+        int definedLen = view.getLengthV2();
+        byte[] dst = buffer.array();
+        packet.getBuffer().get(packet.getPayloadOffset(), dst, 0, len);
+        if (len < definedLen)
+        {
+            Arrays.fill(dst, len, definedLen, (byte) 0);
+        }
+        view.wrapPayload(buffer, 0);
+        this.messageId = packet.getMessageId();
+        this.sysId = packet.getSysId();
+        this.compId = packet.getCompId();
+        this.sequence = packet.getSequence();
+        refCnt.set(1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public T view()
+    {
+        if (refCnt.get() <= 0)
+        {
+            throw new IllegalStateException("response already released");
+        }
+        return (T) view;
+    }
+
+    public int messageId()
+    {
+        return messageId;
+    }
+
+    public int sysId()
+    {
+        return sysId;
+    }
+
+    public int compId()
+    {
+        return compId;
+    }
+
+    public int sequence()
+    {
+        return sequence;
+    }
+
+    public MavlinkResponse<T> retain()
+    {
+        int cnt;
+        do
+        {
+            cnt = refCnt.get();
+            if (cnt <= 0)
+            {
+                throw new IllegalStateException("response already released");
+            }
+        } while (!refCnt.compareAndSet(cnt, cnt + 1));
+        return this;
+    }
+
+    public boolean release()
+    {
+        int cnt = refCnt.decrementAndGet();
+        if (cnt == 0)
+        {
+            pool.recycle(this);
+            return true;
+        }
+        if (cnt < 0)
+        {
+            refCnt.incrementAndGet();
+            throw new IllegalStateException("response already released");
+        }
+        return false;
+    }
+
+    @Override
+    public void close()
+    {
+        release();
+    }
+}
@@ -6,4 +6,14 @@ import com.chulise.mavlink.core.MavlinkPacketView;
 public interface MavlinkResponseMatcher
 {
     boolean matches(MavlinkPacketView packet, PendingRequest request);
+
+    default MavlinkCorrelation correlation()
+    {
+        return null;
+    }
+
+    default int correlationKey()
+    {
+        return 0;
+    }
 }
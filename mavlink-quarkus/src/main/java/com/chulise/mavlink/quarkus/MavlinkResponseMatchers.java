@@ -43,6 +43,50 @@ public final class MavlinkResponseMatchers
     private static final ThreadLocal<MissionItemView> MISSION_ITEM_VIEW = ThreadLocal.withInitial(MissionItemView::new);
     private static final ThreadLocal<MissionItemIntView> MISSION_ITEM_INT_VIEW = ThreadLocal.withInitial(MissionItemIntView::new);
 
+    private static final MavlinkCorrelation COMMAND_ACK_COMMAND = packet ->
+    {
+        CommandAckView view = COMMAND_ACK_VIEW.get();
+        view.wrap(packet);
+        return view.command();
+    };
+
+    private static final MavlinkCorrelation PARAM_VALUE_INDEX = packet ->
+    {
+        ParamValueView view = PARAM_VALUE_VIEW.get();
+        view.wrap(packet);
+        return view.paramIndex();
+    };
+
+    private static final MavlinkCorrelation PARAM_VALUE_ID = packet ->
+    {
+        ParamValueView view = PARAM_VALUE_VIEW.get();
+        view.wrap(packet);
+        int h = 1;
+        for (int i = 0; i < 16; i++)
+        {
+            h = 31 * h + view.paramId(i);
+        }
+        return h;
+    };
+
+    private static final MavlinkCorrelation MISSION_SEQ = packet ->
+    {
+        int id = packet.getMessageId();
+        if (id == MissionItemView.ID)
+        {
+            MissionItemView view = MISSION_ITEM_VIEW.get();
+            view.wrap(packet);
+            return view.seq();
+        }
+        if (id == MissionItemIntView.ID)
+        {
+            MissionItemIntView view = MISSION_ITEM_INT_VIEW.get();
+            view.wrap(packet);
+            return view.seq();
+        }
+        return -1;
+    };
+
     private MavlinkResponseMatchers()
     {
     }
@@ -72,7 +116,7 @@ public final class MavlinkResponseMatchers
 
     public static MavlinkResponseMatcher commandAck(int command)
     {
-        return (packet, req) ->
+        return keyed(COMMAND_ACK_COMMAND, command, (packet, req) ->
         {
             if (!SYS_COMP_LINK.matches(packet, req))
             {
@@ -85,7 +129,7 @@ public final class MavlinkResponseMatchers
             CommandAckView view = COMMAND_ACK_VIEW.get();
             view.wrap(packet);
             return view.command() == command;
-        };
+        });
     }
 
     public static MavlinkResponseMatcher paramId(String paramId)
@@ -96,7 +140,12 @@ public final class MavlinkResponseMatchers
     public static MavlinkResponseMatcher paramId(byte[] paramId)
     {
         byte[] key = paramId == null ? new byte[16] : paramId;
-        return (packet, req) ->
+        int h = 1;
+        for (int i = 0; i < 16; i++)
+        {
+            h = 31 * h + (i < key.length ? key[i] & 0xFF : 0);
+        }
+        return keyed(PARAM_VALUE_ID, h, (packet, req) ->
         {
             if (!SYS_COMP_LINK.matches(packet, req))
             {
@@ -110,18 +159,18 @@ public final class MavlinkResponseMatchers
             view.wrap(packet);
             for (int i = 0; i < 16; i++)
             {
-                if (view.paramId(i) != (key[i] & 0xFF))
+                if (view.paramId(i) != (i < key.length ? key[i] & 0xFF : 0))
                 {
                     return false;
                 }
             }
             return true;
-        };
+        });
     }
 
     public static MavlinkResponseMatcher paramIndex(int index)
     {
-        return (packet, req) ->
+        return keyed(PARAM_VALUE_INDEX, index, (packet, req) ->
         {
             if (!SYS_COMP_LINK.matches(packet, req))
             {
@@ -134,12 +183,12 @@ public final class MavlinkResponseMatchers
             ParamValueView view = PARAM_VALUE_VIEW.get();
             view.wrap(packet);
             return view.paramIndex() == index;
-        };
+        });
     }
 
     public static MavlinkResponseMatcher missionSeq(int seq)
     {
-        return (packet, req) ->
+        return keyed(MISSION_SEQ, seq, (packet, req) ->
         {
             if (!SYS_COMP_LINK.matches(packet, req))
             {
@@ -159,7 +208,14 @@ public final class MavlinkResponseMatchers
                 return view.seq() == seq;
             }
             return false;
-        };
+        });
+    }
+
+    // correlation must be a shared constant, not a fresh lambda per request: each distinct instance adds a route that
+    // every inbound packet scans, and a message accepts at most 8 of them before requests fail.
+    public static MavlinkResponseMatcher keyed(MavlinkCorrelation correlation, int key, MavlinkResponseMatcher matcher)
+    {
+        return new KeyedMatcher(correlation, key, matcher);
     }
 
     private static byte[] normalizeParamId(String paramId)
@@ -174,4 +230,36 @@ public final class MavlinkResponseMatchers
         System.arraycopy(src, 0, key, 0, len);
         return key;
     }
+
+    private static final class KeyedMatcher implements MavlinkResponseMatcher
+    {
+        private final MavlinkCorrelation correlation;
+        private final int key;
+        private final MavlinkResponseMatcher delegate;
+
+        KeyedMatcher(MavlinkCorrelation correlation, int key, MavlinkResponseMatcher delegate)
+        {
+            this.correlation = correlation;
+            this.key = key;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean matches(MavlinkPacketView packet, PendingRequest request)
+        {
+            return delegate.matches(packet, request);
+        }
+
+        @Override
+        public MavlinkCorrelation correlation()
+        {
+            return correlation;
+        }
+
+        @Override
+        public int correlationKey()
+        {
+            return key;
+        }
+    }
 }
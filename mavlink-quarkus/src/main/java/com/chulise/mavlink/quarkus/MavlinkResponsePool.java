@@ -0,0 +1,24 @@
+package com.chulise.mavlink.quarkus;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+final class MavlinkResponsePool
+{
+    private final ArrayBlockingQueue<MavlinkResponse<?>> free;
+
+    MavlinkResponsePool(int capacity)
+    {
+        this.free = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    MavlinkResponse<?> acquire()
+    {
+        MavlinkResponse<?> response = free.poll();
+        return response != null ? response : new MavlinkResponse<>(this);
+    }
+
+    void recycle(MavlinkResponse<?> response)
+    {
+        free.offer(response);
+    }
+}
@@ -0,0 +1,126 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkDialect;
+import com.chulise.mavlink.core.MavlinkPacketView;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Forwards raw frames between listeners; only the header and the target bytes are read.
+final class MavlinkRouter
+{
+    static final int MAX_LISTENERS = 64;
+
+    private final MavlinkTransport[] transports;
+    private final MavlinkDedupWindow dedup;
+    private final AtomicLongArray seen = new AtomicLongArray(256);
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    MavlinkRouter(MavlinkTransport[] transports, MavlinkDedupWindow dedup)
+    {
+        if (transports.length > MAX_LISTENERS)
+        {
+            throw new IllegalStateException("router supports at most " + MAX_LISTENERS + " listeners");
+        }
+        this.transports = transports;
+        this.dedup = dedup;
+    }
+
+    MavlinkFrameTap tap(int source, long forwardMask, MavlinkDialect dialect)
+    {
+        long mask = forwardMask & ~(1L << source);
+        return (packet, buffer, offset, length) -> route(source, mask, dialect, packet, buffer, offset, length);
+    }
+
+    long forwarded()
+    {
+        return forwarded.sum();
+    }
+
+    long duplicates()
+    {
+        return duplicates.sum();
+    }
+
+    long failures()
+    {
+        return failures.sum();
+    }
+
+    private void route(int source,
+                       long forwardMask,
+                       MavlinkDialect dialect,
+                       MavlinkPacketView packet,
+                       ByteBuffer buffer,
+                       int offset,
+                       int length)
+    {
+        learn(packet.getSysId(), source);
+        if (forwardMask == 0)
+        {
+            return;
+        }
+        if (dedup != null && !dedup.firstSeen(MavlinkDedupWindow.frameKey(packet)))
+        {
+            duplicates.increment();
+            return;
+        }
+
+        int messageId = packet.getMessageId();
+        int targetSys = targetByte(packet, dialect == null ? -1 : dialect.targetSystemOffset(messageId));
+        int targetComp = targetByte(packet, dialect == null ? -1 : dialect.targetComponentOffset(messageId));
+        long destinations = targetSys > 0 ? forwardMask & seen.get(targetSys) : 0;
+
+        if (destinations == 0)
+        {
+            for (long m = forwardMask; m != 0; m &= m - 1)
+            {
+                int dst = Long.numberOfTrailingZeros(m);
+                try
+                {
+                    transports[dst].broadcast(buffer, offset, length);
+                    forwarded.increment();
+                } catch (IllegalStateException e)
+                {
+                    failures.increment();
+                }
+            }
+            return;
+        }
+
+        for (long m = destinations; m != 0; m &= m - 1)
+        {
+            int dst = Long.numberOfTrailingZeros(m);
+            try
+            {
+                transports[dst].sendTo(targetSys, targetComp > 0 ? targetComp : -1, buffer, offset, length);
+                forwarded.increment();
+            } catch (IllegalStateException e)
+            {
+                failures.increment();
+            }
+        }
+    }
+
+    private void learn(int sysId, int source)
+    {
+        long bit = 1L << source;
+        long known = seen.get(sysId);
+        while ((known & bit) == 0 && !seen.compareAndSet(sysId, known, known | bit))
+        {
+            known = seen.get(sysId);
+        }
+    }
+
+    // Trimmed v2 payloads drop trailing zeros, so an offset past the payload reads as broadcast (0).
+    private static int targetByte(MavlinkPacketView packet, int payloadOffset)
+    {
+        if (payloadOffset < 0 || payloadOffset >= packet.getPayloadLength())
+        {
+            return 0;
+        }
+        return packet.getBuffer().get(packet.getPayloadOffset() + payloadOffset) & 0xFF;
+    }
+}
@@ -0,0 +1,13 @@
+package com.chulise.mavlink.quarkus;
+
+final class MavlinkRouterConfig
+{
+    final Long dedupWindowMs;
+    final Integer dedupCapacity;
+
+    MavlinkRouterConfig(Long dedupWindowMs, Integer dedupCapacity)
+    {
+        this.dedupWindowMs = dedupWindowMs;
+        this.dedupCapacity = dedupCapacity;
+    }
+}
@@ -0,0 +1,228 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkIdleStrategy;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+// Asynchronous outbound path: one frame ring per priority class, drained by a single writer thread per transport.
+// Strict mode always sends the highest non-empty class first; weighted mode gives each class up to its weight in
+// frames per round. A class with a byte budget is skipped while its token bucket cannot cover the next frame.
+final class MavlinkSendQueue implements AutoCloseable
+{
+    static final int CLASSES = MavlinkPriority.values().length;
+    private static final int MAX_BATCH = 64;
+
+    private final MavlinkTransport transport;
+    private final MavlinkListenerStats stats;
+    private final MavlinkFrameQueue[] queues = new MavlinkFrameQueue[CLASSES];
+    private final boolean weighted;
+    private final int[] weights;
+    private final long[] budgets;
+    private final double[] tokens = new double[CLASSES];
+    private final MavlinkIdleStrategy idle;
+    private final Thread writer;
+    private long lastRefill = System.nanoTime();
+    private volatile boolean idling;
+    private volatile boolean running = true;
+
+    // budgets are bytes per second per class, 0 for unlimited; bursts are capped at a tenth of a second.
+    MavlinkSendQueue(String id,
+                     MavlinkTransport transport,
+                     MavlinkListenerStats stats,
+                     int capacity,
+                     boolean weighted,
+                     int[] weights,
+                     long[] budgets,
+                     MavlinkIdleStrategy idle)
+    {
+        this.transport = transport;
+        this.stats = stats;
+        this.weighted = weighted;
+        this.weights = weights.clone();
+        this.budgets = budgets.clone();
+        this.idle = idle;
+        for (int i = 0; i < CLASSES; i++)
+        {
+            queues[i] = new MavlinkFrameQueue(capacity);
+            tokens[i] = burst(i);
+        }
+        this.writer = new Thread(this::run, "mavlink-writer-" + id);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Encodes on the caller thread directly into a queue slot; false when the class's queue is full.
+    boolean offer(MavlinkPriority priority, int sysId, int compId, MavlinkClient.PacketWriter packet)
+    {
+        int cls = priority.ordinal();
+        MavlinkFrameQueue queue = queues[cls];
+        int slot = queue.claim();
+        if (slot < 0)
+        {
+            if (stats != null)
+            {
+                stats.onSendQueueDrop(cls);
+            }
+            return false;
+        }
+        int written = 0;
+        try
+        {
+            written = packet.write(queue.frame(slot), 0);
+        } finally
+        {
+            queue.publish(slot, written, sysId, compId, System.nanoTime());
+        }
+        if (written <= 0)
+        {
+            throw new IllegalArgumentException("writer returned invalid length: " + written);
+        }
+        if (idling)
+        {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    private void run()
+    {
+        while (running)
+        {
+            int work = drain();
+            if (work == 0)
+            {
+                // Announce the idle state before the final look: a producer that published after drain() either
+                // shows up here or sees idling and unparks us, so no frame waits out a whole park period.
+                idling = true;
+                if (!hasReady())
+                {
+                    idle.idle(0);
+                }
+                idling = false;
+            } else
+            {
+                idle.idle(work);
+            }
+        }
+    }
+
+    private int drain()
+    {
+        refill();
+        int sent = 0;
+        if (!weighted)
+        {
+            while (sent < MAX_BATCH)
+            {
+                int cls = 0;
+                while (cls < CLASSES && !ready(cls))
+                {
+                    cls++;
+                }
+                if (cls == CLASSES)
+                {
+                    break;
+                }
+                sendHead(cls);
+                sent++;
+            }
+            return sent;
+        }
+        for (int cls = 0; cls < CLASSES; cls++)
+        {
+            for (int n = 0; n < weights[cls] && ready(cls); n++)
+            {
+                sendHead(cls);
+                sent++;
+            }
+        }
+        return sent;
+    }
+
+    private boolean hasReady()
+    {
+        for (int cls = 0; cls < CLASSES; cls++)
+        {
+            if (ready(cls))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean ready(int cls)
+    {
+        MavlinkFrameQueue queue = queues[cls];
+        int slot = queue.peek();
+        if (slot < 0)
+        {
+            return false;
+        }
+        return budgets[cls] == 0 || tokens[cls] >= queue.length(slot);
+    }
+
+    private void sendHead(int cls)
+    {
+        MavlinkFrameQueue queue = queues[cls];
+        int slot = queue.peek();
+        int length = queue.length(slot);
+        if (length > 0)
+        {
+            ByteBuffer frame = queue.frame(slot);
+            int sysId = queue.sysId(slot);
+            try
+            {
+                if (sysId < 0)
+                {
+                    transport.send(frame, 0, length);
+                } else
+                {
+                    transport.sendTo(sysId, queue.compId(slot), frame, 0, length);
+                }
+            } catch (IllegalStateException e)
+            {
+                // Counted as dropped only: the frame never left, so it costs no tokens and is not a sent packet.
+                if (stats != null)
+                {
+                    stats.onSendQueueDrop(cls);
+                }
+                queue.release(slot);
+                return;
+            }
+            tokens[cls] -= length;
+            if (stats != null)
+            {
+                stats.onPacketOut(length);
+                stats.onSendQueued(cls, System.nanoTime() - queue.enqueuedAt(slot));
+            }
+        }
+        queue.release(slot);
+    }
+
+    private void refill()
+    {
+        long now = System.nanoTime();
+        long elapsed = now - lastRefill;
+        lastRefill = now;
+        for (int i = 0; i < CLASSES; i++)
+        {
+            if (budgets[i] > 0)
+            {
+                tokens[i] = Math.min(burst(i), tokens[i] + budgets[i] * (elapsed / 1e9));
+            }
+        }
+    }
+
+    private double burst(int cls)
+    {
+        return Math.max(MavlinkFrameQueue.MAX_FRAME, budgets[cls] / 10.0);
+    }
+
+    @Override
+    public void close()
+    {
+        running = false;
+        LockSupport.unpark(writer);
+    }
+}
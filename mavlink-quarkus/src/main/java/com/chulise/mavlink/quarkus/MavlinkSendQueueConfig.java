@@ -0,0 +1,34 @@
+package com.chulise.mavlink.quarkus;
+
+import java.util.List;
+
+final class MavlinkSendQueueConfig
+{
+    final Boolean enabled;
+    final Integer capacity;
+    final String policy;
+    final List<String> weights;
+    final Long controlBudget;
+    final Long normalBudget;
+    final Long bulkBudget;
+    final String idle;
+
+    MavlinkSendQueueConfig(Boolean enabled,
+                           Integer capacity,
+                           String policy,
+                           List<String> weights,
+                           Long controlBudget,
+                           Long normalBudget,
+                           Long bulkBudget,
+                           String idle)
+    {
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.weights = weights;
+        this.controlBudget = controlBudget;
+        this.normalBudget = normalBudget;
+        this.bulkBudget = bulkBudget;
+        this.idle = idle;
+    }
+}
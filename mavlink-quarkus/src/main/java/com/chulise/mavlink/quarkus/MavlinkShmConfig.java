@@ -0,0 +1,26 @@
+package com.chulise.mavlink.quarkus;
+
+final class MavlinkShmConfig
+{
+    final String path;
+    final String outboundPath;
+    final String publishPath;
+    final Integer slots;
+    final Integer slotSize;
+    final String idle;
+
+    MavlinkShmConfig(String path,
+                     String outboundPath,
+                     String publishPath,
+                     Integer slots,
+                     Integer slotSize,
+                     String idle)
+    {
+        this.path = path;
+        this.outboundPath = outboundPath;
+        this.publishPath = publishPath;
+        this.slots = slots;
+        this.slotSize = slotSize;
+        this.idle = idle;
+    }
+}
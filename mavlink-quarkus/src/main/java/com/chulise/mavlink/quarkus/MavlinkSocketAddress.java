@@ -1,6 +1,8 @@
 package com.chulise.mavlink.quarkus;
 
 import java.net.InetSocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Path;
 
 final class MavlinkSocketAddress
 {
@@ -27,4 +29,19 @@ final class MavlinkSocketAddress
         int port = Integer.parseInt(portStr);
         return new InetSocketAddress(host, port);
     }
+
+    // Socket file path, with an optional "unix:" prefix.
+    static UnixDomainSocketAddress parseUnix(String value)
+    {
+        if (value == null || value.isBlank())
+        {
+            return null;
+        }
+        String v = value.trim();
+        if (v.startsWith("unix:"))
+        {
+            v = v.substring(5);
+        }
+        return UnixDomainSocketAddress.of(Path.of(v));
+    }
 }
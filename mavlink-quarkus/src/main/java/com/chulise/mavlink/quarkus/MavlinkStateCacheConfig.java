@@ -0,0 +1,17 @@
+package com.chulise.mavlink.quarkus;
+
+import java.util.List;
+
+final class MavlinkStateCacheConfig
+{
+    final Boolean enabled;
+    final Integer capacity;
+    final List<String> messageIds;
+
+    MavlinkStateCacheConfig(Boolean enabled, Integer capacity, List<String> messageIds)
+    {
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.messageIds = messageIds;
+    }
+}
@@ -14,4 +14,12 @@ public @interface MavlinkSubscribe
     int messageId() default -1;
 
     boolean raw() default false;
+
+    // Per-sender delivery cap for this handler; 0 means every packet. Ignored for raw subscribers.
+    double maxRateHz() default 0;
+
+    // With maxRateHz, deliver the newest dropped packet when the next slot opens instead of discarding it.
+    // That delivery runs on the shared mavlink-timer thread, possibly while the receive thread is inside the same
+    // handler for another sender, so the handler must be thread-safe and must not block.
+    boolean latest() default false;
 }
@@ -0,0 +1,80 @@
+package com.chulise.mavlink.quarkus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Pins the calling thread to one CPU. Receive threads call it once before their loop starts, so parsing and handler
+// dispatch, which run inline on that thread, stay on the same core. Returns false when the thread was left unpinned.
+public interface MavlinkThreadAffinity
+{
+    boolean pin(int cpu);
+
+    static MavlinkThreadAffinity none()
+    {
+        return cpu -> false;
+    }
+
+    // Linux only: finds the native thread id through /proc/thread-self and hands it to taskset(1).
+    static MavlinkThreadAffinity taskset()
+    {
+        return Taskset.INSTANCE;
+    }
+
+    static MavlinkThreadAffinity fromName(String name)
+    {
+        if (name == null || name.isBlank() || "taskset".equalsIgnoreCase(name.trim()))
+        {
+            return taskset();
+        }
+        String v = name.trim();
+        if ("none".equalsIgnoreCase(v))
+        {
+            return none();
+        }
+        try
+        {
+            Class<?> type = Class.forName(v);
+            if (!MavlinkThreadAffinity.class.isAssignableFrom(type))
+            {
+                throw new IllegalArgumentException("affinity must implement MavlinkThreadAffinity: " + v);
+            }
+            return (MavlinkThreadAffinity) type.getDeclaredConstructor().newInstance();
+        } catch (Exception e)
+        {
+            throw new IllegalStateException("cannot create affinity: " + v, e);
+        }
+    }
+
+    final class Taskset implements MavlinkThreadAffinity
+    {
+        private static final Taskset INSTANCE = new Taskset();
+        private static final Path THREAD_SELF = Path.of("/proc/thread-self");
+
+        private Taskset()
+        {
+        }
+
+        @Override
+        public boolean pin(int cpu)
+        {
+            try
+            {
+                // Resolves to <pid>/task/<tid>.
+                String tid = Files.readSymbolicLink(THREAD_SELF).getFileName().toString();
+                Process process = new ProcessBuilder("taskset", "-p", "-c", Integer.toString(cpu), tid)
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .start();
+                return process.waitFor() == 0;
+            } catch (IOException | UnsupportedOperationException e)
+            {
+                return false;
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+}
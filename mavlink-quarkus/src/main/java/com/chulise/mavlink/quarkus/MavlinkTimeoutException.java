@@ -0,0 +1,11 @@
+package com.chulise.mavlink.quarkus;
+
+public class MavlinkTimeoutException extends IllegalStateException
+{
+    private static final long serialVersionUID = 1L;
+
+    public MavlinkTimeoutException(String message)
+    {
+        super(message);
+    }
+}
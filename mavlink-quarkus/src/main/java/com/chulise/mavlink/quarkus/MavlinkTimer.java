@@ -0,0 +1,284 @@
+package com.chulise.mavlink.quarkus;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+// Hashed timing wheel on a single ticker thread; tasks run on that thread and must not block.
+final class MavlinkTimer implements AutoCloseable
+{
+    static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> additions = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancellations = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private final long startTime;
+    private volatile boolean running = true;
+    private volatile boolean idle;
+    private long tick;
+    private int scheduled;
+
+    MavlinkTimer(String name)
+    {
+        this(name, DEFAULT_TICK_NANOS, DEFAULT_WHEEL_SIZE);
+    }
+
+    MavlinkTimer(String name, long tickNanos, int wheelSize)
+    {
+        this.tickNanos = Math.max(TimeUnit.MICROSECONDS.toNanos(100), tickNanos);
+        int size = Integer.highestOneBit(Math.max(16, wheelSize) - 1) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++)
+        {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.startTime = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    Timeout schedule(Runnable task, long delay, TimeUnit unit)
+    {
+        if (!running)
+        {
+            throw new IllegalStateException("timer closed");
+        }
+        long deadline = System.nanoTime() + Math.max(0, unit.toNanos(delay)) - startTime;
+        Timeout timeout = new Timeout(this, task, deadline);
+        additions.add(timeout);
+        if (idle)
+        {
+            LockSupport.unpark(worker);
+        }
+        return timeout;
+    }
+
+    long tickNanos()
+    {
+        return tickNanos;
+    }
+
+    private void run()
+    {
+        while (running)
+        {
+            if (scheduled == 0 && additions.isEmpty())
+            {
+                idle = true;
+                if (scheduled == 0 && additions.isEmpty() && running)
+                {
+                    LockSupport.park(this);
+                }
+                idle = false;
+                // Nothing is parked in the wheel, so it is safe to jump the cursor forward.
+                tick = Math.max(tick, (System.nanoTime() - startTime) / tickNanos);
+            }
+
+            long now = waitForNextTick();
+            if (now < 0)
+            {
+                continue;
+            }
+            processCancellations();
+            transferAdditions();
+            wheel[(int) (tick & mask)].expire(now);
+            tick++;
+        }
+    }
+
+    private long waitForNextTick()
+    {
+        long deadline = tickNanos * (tick + 1);
+        while (running)
+        {
+            long now = System.nanoTime() - startTime;
+            long sleep = deadline - now;
+            if (sleep <= 0)
+            {
+                return now;
+            }
+            LockSupport.parkNanos(this, sleep);
+        }
+        return -1;
+    }
+
+    private void transferAdditions()
+    {
+        for (int i = 0; i < 100_000; i++)
+        {
+            Timeout timeout = additions.poll();
+            if (timeout == null)
+            {
+                return;
+            }
+            if (timeout.state != Timeout.ST_INIT)
+            {
+                continue;
+            }
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+            scheduled++;
+        }
+    }
+
+    private void processCancellations()
+    {
+        Timeout timeout;
+        while ((timeout = cancellations.poll()) != null)
+        {
+            if (timeout.bucket != null)
+            {
+                timeout.bucket.remove(timeout);
+                scheduled--;
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    static final class Timeout
+    {
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final MavlinkTimer timer;
+        private final Runnable task;
+        private final long deadline;
+        private volatile int state;
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout prev;
+
+        private Timeout(MavlinkTimer timer, Runnable task, long deadline)
+        {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        boolean cancel()
+        {
+            if (!STATE.compareAndSet(this, ST_INIT, ST_CANCELLED))
+            {
+                return false;
+            }
+            timer.cancellations.add(this);
+            return true;
+        }
+
+        boolean isCancelled()
+        {
+            return state == ST_CANCELLED;
+        }
+
+        boolean isExpired()
+        {
+            return state == ST_EXPIRED;
+        }
+
+        private void expire()
+        {
+            if (!STATE.compareAndSet(this, ST_INIT, ST_EXPIRED))
+            {
+                return;
+            }
+            try
+            {
+                task.run();
+            } catch (RuntimeException e)
+            {
+                // A failing task must not stall the wheel.
+            }
+        }
+    }
+
+    private final class Bucket
+    {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout)
+        {
+            timeout.bucket = this;
+            if (head == null)
+            {
+                head = tail = timeout;
+            } else
+            {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expire(long now)
+        {
+            Timeout timeout = head;
+            while (timeout != null)
+            {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0 && timeout.deadline <= now)
+                {
+                    remove(timeout);
+                    scheduled--;
+                    timeout.expire();
+                } else if (timeout.isCancelled())
+                {
+                    remove(timeout);
+                    scheduled--;
+                } else
+                {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(Timeout timeout)
+        {
+            if (timeout.bucket != this)
+            {
+                return;
+            }
+            Timeout next = timeout.next;
+            if (timeout.prev != null)
+            {
+                timeout.prev.next = next;
+            }
+            if (next != null)
+            {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head)
+            {
+                head = next;
+            }
+            if (timeout == tail)
+            {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.chulise.mavlink.quarkus;
+
+final class MavlinkTlogConfig
+{
+    final String directory;
+    final String prefix;
+    final Integer segmentSize;
+    final Long rollIntervalMs;
+    final Long flushIntervalMs;
+    final Boolean index;
+
+    MavlinkTlogConfig(String directory,
+                      String prefix,
+                      Integer segmentSize,
+                      Long rollIntervalMs,
+                      Long flushIntervalMs,
+                      Boolean index)
+    {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.segmentSize = segmentSize;
+        this.rollIntervalMs = rollIntervalMs;
+        this.flushIntervalMs = flushIntervalMs;
+        this.index = index;
+    }
+}
@@ -1,16 +1,27 @@
 package com.chulise.mavlink.quarkus;
 
 import java.nio.ByteBuffer;
-import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 interface MavlinkTransport extends AutoCloseable
 {
     boolean isStream();
 
-    void start(Consumer<ByteBuffer> onPacket);
+    void start(Supplier<MavlinkInboundLane> lanes);
 
     void send(ByteBuffer buffer, int offset, int length);
 
+    default void sendTo(int sysId, int compId, ByteBuffer buffer, int offset, int length)
+    {
+        send(buffer, offset, length);
+    }
+
+    default int broadcast(ByteBuffer buffer, int offset, int length)
+    {
+        send(buffer, offset, length);
+        return 1;
+    }
+
     @Override
     void close();
 }
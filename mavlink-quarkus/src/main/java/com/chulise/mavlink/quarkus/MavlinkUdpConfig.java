@@ -0,0 +1,40 @@
+package com.chulise.mavlink.quarkus;
+
+import java.util.List;
+
+final class MavlinkUdpConfig
+{
+    final Integer threads;
+    final Boolean reusePort;
+    final Integer receiveBufferSize;
+    final Integer sendBufferSize;
+    final Integer batchSize;
+    final Integer bufferSize;
+    final Long routeIdleMs;
+    final String idle;
+    final List<String> cpus;
+    final String affinity;
+
+    MavlinkUdpConfig(Integer threads,
+                     Boolean reusePort,
+                     Integer receiveBufferSize,
+                     Integer sendBufferSize,
+                     Integer batchSize,
+                     Integer bufferSize,
+                     Long routeIdleMs,
+                     String idle,
+                     List<String> cpus,
+                     String affinity)
+    {
+        this.threads = threads;
+        this.reusePort = reusePort;
+        this.receiveBufferSize = receiveBufferSize;
+        this.sendBufferSize = sendBufferSize;
+        this.batchSize = batchSize;
+        this.bufferSize = bufferSize;
+        this.routeIdleMs = routeIdleMs;
+        this.idle = idle;
+        this.cpus = cpus;
+        this.affinity = affinity;
+    }
+}
@@ -0,0 +1,65 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkView;
+import com.chulise.mavlink.core.MavlinkViewFactory;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+final class MavlinkViewFactories
+{
+    private static final ClassValue<MavlinkViewFactory<?>> FACTORIES = new ClassValue<>()
+    {
+        @Override
+        protected MavlinkViewFactory<?> computeValue(Class<?> type)
+        {
+            return resolve(type);
+        }
+    };
+
+    private MavlinkViewFactories()
+    {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T extends MavlinkView> MavlinkViewFactory<T> of(Class<T> type)
+    {
+        return (MavlinkViewFactory<T>) FACTORIES.get(type);
+    }
+
+    private static MavlinkViewFactory<?> resolve(Class<?> type)
+    {
+        try
+        {
+            Field field = type.getField("FACTORY");
+            if (Modifier.isStatic(field.getModifiers()) && MavlinkViewFactory.class.isAssignableFrom(field.getType()))
+            {
+                Object value = field.get(null);
+                if (value != null)
+                {
+                    return (MavlinkViewFactory<?>) value;
+                }
+            }
+        } catch (NoSuchFieldException | IllegalAccessException ignored)
+        {
+        }
+
+        try
+        {
+            Constructor<?> ctor = type.getDeclaredConstructor();
+            return () ->
+            {
+                try
+                {
+                    return (MavlinkView) ctor.newInstance();
+                } catch (ReflectiveOperationException e)
+                {
+                    throw new IllegalStateException("cannot create view: " + type.getName(), e);
+                }
+            };
+        } catch (NoSuchMethodException e)
+        {
+            throw new IllegalStateException("cannot create view: " + type.getName(), e);
+        }
+    }
+}
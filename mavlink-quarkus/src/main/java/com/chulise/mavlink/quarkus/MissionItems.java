@@ -0,0 +1,103 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkPacketView;
+import com.chulise.mavlink.messages.MissionItemIntView;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Mission items stored back to back as MISSION_ITEM_INT payloads, so a transfer sends or receives them without
+// building an object per item.
+public final class MissionItems
+{
+    private static final int STRIDE = MissionItemIntView.LENGTH_V2;
+
+    private final ByteBuffer payloads;
+    private final int capacity;
+    private int size;
+
+    private MissionItems(int capacity)
+    {
+        this.capacity = capacity;
+        this.payloads = ByteBuffer.allocate(Math.max(1, capacity) * STRIDE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public static MissionItems allocate(int capacity)
+    {
+        return new MissionItems(Math.max(0, capacity));
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public int capacity()
+    {
+        return capacity;
+    }
+
+    // Appends an item and returns its seq; target and mission type are filled in when it is sent.
+    public int add(int frame,
+                   int command,
+                   int current,
+                   int autocontinue,
+                   float param1,
+                   float param2,
+                   float param3,
+                   float param4,
+                   int x,
+                   int y,
+                   float z)
+    {
+        if (size == capacity)
+        {
+            throw new IllegalStateException("mission is full: " + capacity);
+        }
+        int seq = size++;
+        MissionItemIntView.pack(payloads, seq * STRIDE, 0, 0, seq, frame, command, current, autocontinue,
+                param1, param2, param3, param4, x, y, z, 0);
+        return seq;
+    }
+
+    public MissionItemIntView view(int seq, MissionItemIntView view)
+    {
+        if (seq < 0 || seq >= size)
+        {
+            throw new IndexOutOfBoundsException("seq " + seq + " of " + size);
+        }
+        view.wrapPayload(payloads, seq * STRIDE);
+        return view;
+    }
+
+    public void clear()
+    {
+        size = 0;
+    }
+
+    // Copies the item payload into the frame buffer and stamps target, seq and mission type.
+    void writePayload(int seq, ByteBuffer out, int offset, int targetSystem, int targetComponent, int missionType)
+    {
+        out.put(offset, payloads, seq * STRIDE, STRIDE);
+        MissionItemIntView.writeTargetSystem(out, offset, targetSystem);
+        MissionItemIntView.writeTargetComponent(out, offset, targetComponent);
+        MissionItemIntView.writeSeq(out, offset, seq);
+        MissionItemIntView.writeMissionType(out, offset, missionType);
+    }
+
+    // Stores a received item at its seq; payload bytes trimmed on the wire are zeroed.
+    void put(int seq, MavlinkPacketView packet)
+    {
+        int base = seq * STRIDE;
+        int length = Math.min(packet.getPayloadLength(), STRIDE);
+        payloads.put(base, packet.getBuffer(), packet.getPayloadOffset(), length);
+        for (int i = length; i < STRIDE; i++)
+        {
+            payloads.put(base + i, (byte) 0);
+        }
+    }
+
+    void size(int value)
+    {
+        this.size = value;
+    }
+}
@@ -0,0 +1,508 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkPacketView;
+import com.chulise.mavlink.core.MavlinkView;
+import com.chulise.mavlink.messages.MissionAckView;
+import com.chulise.mavlink.messages.MissionCountView;
+import com.chulise.mavlink.messages.MissionItemIntView;
+import com.chulise.mavlink.messages.MissionRequestIntView;
+import com.chulise.mavlink.messages.MissionRequestListView;
+import com.chulise.mavlink.messages.MissionRequestView;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Runs mission uploads and downloads as state machines driven by inbound packets and the listener's timer, so any
+// number of vehicles transfer concurrently without a pending request per item. Uploads answer each vehicle request
+// as it arrives, in any order; downloads keep a window of item requests in flight and re-request only missing seqs.
+public final class MissionTransferEngine implements AutoCloseable
+{
+    private static final int MAV_MISSION_ACCEPTED = 0;
+    private static final int HEADER_LEN = MavlinkPacketView.HEADER_LEN_V2;
+    private static final ThreadLocal<MissionRequestIntView> REQUEST_INT_VIEW = ThreadLocal.withInitial(MissionRequestIntView::new);
+    private static final ThreadLocal<MissionRequestView> REQUEST_VIEW = ThreadLocal.withInitial(MissionRequestView::new);
+    private static final ThreadLocal<MissionAckView> ACK_VIEW = ThreadLocal.withInitial(MissionAckView::new);
+    private static final ThreadLocal<MissionCountView> COUNT_VIEW = ThreadLocal.withInitial(MissionCountView::new);
+    private static final ThreadLocal<MissionItemIntView> ITEM_VIEW = ThreadLocal.withInitial(MissionItemIntView::new);
+
+    private final MavlinkClient client;
+    private final MavlinkTimer timer;
+    private final long timeoutMs;
+    private final int maxAttempts;
+    private final int window;
+    private final ConcurrentHashMap<Integer, Transfer<?>> transfers = new ConcurrentHashMap<>();
+    private final MavlinkHandlerInvoker handler = arg -> onPacket((MavlinkPacketView) arg);
+
+    private MissionTransferEngine(Builder builder)
+    {
+        this.client = builder.client;
+        this.timer = client.timer();
+        this.timeoutMs = builder.timeoutMs;
+        this.maxAttempts = builder.maxAttempts;
+        this.window = builder.window;
+        client.dispatcher().registerRaw(handler);
+    }
+
+    public static Builder builder(MavlinkClient client)
+    {
+        return new Builder(client);
+    }
+
+    // Completes with the vehicle's MAV_MISSION_RESULT from MISSION_ACK.
+    public CompletableFuture<Integer> upload(int sysId, int compId, int missionType, MissionItems items)
+    {
+        return start(new Upload(sysId, compId, missionType, items)).result;
+    }
+
+    public CompletableFuture<MissionItems> download(int sysId, int compId, int missionType)
+    {
+        return start(new Download(sysId, compId, missionType)).result;
+    }
+
+    public int active()
+    {
+        return transfers.size();
+    }
+
+    private <T extends Transfer<?>> T start(T transfer)
+    {
+        if (transfers.putIfAbsent(transfer.key, transfer) != null)
+        {
+            transfer.result.completeExceptionally(new IllegalStateException("mission transfer already active for "
+                    + transfer.sysId + "/" + transfer.compId + " type " + transfer.missionType));
+            return transfer;
+        }
+        synchronized (transfer)
+        {
+            transfer.touch();
+            transfer.begin();
+            transfer.schedule(timeoutMs);
+        }
+        return transfer;
+    }
+
+    private void onPacket(MavlinkPacketView packet)
+    {
+        int id = packet.getMessageId();
+        int missionType;
+        int targetSystem;
+        int targetComponent;
+        if (id == MissionRequestIntView.ID)
+        {
+            MissionRequestIntView view = wrap(REQUEST_INT_VIEW.get(), packet);
+            missionType = view.missionType();
+            targetSystem = view.targetSystem();
+            targetComponent = view.targetComponent();
+        } else if (id == MissionRequestView.ID)
+        {
+            MissionRequestView view = wrap(REQUEST_VIEW.get(), packet);
+            missionType = view.missionType();
+            targetSystem = view.targetSystem();
+            targetComponent = view.targetComponent();
+        } else if (id == MissionAckView.ID)
+        {
+            MissionAckView view = wrap(ACK_VIEW.get(), packet);
+            missionType = view.missionType();
+            targetSystem = view.targetSystem();
+            targetComponent = view.targetComponent();
+        } else if (id == MissionCountView.ID)
+        {
+            MissionCountView view = wrap(COUNT_VIEW.get(), packet);
+            missionType = view.missionType();
+            targetSystem = view.targetSystem();
+            targetComponent = view.targetComponent();
+        } else if (id == MissionItemIntView.ID)
+        {
+            MissionItemIntView view = wrap(ITEM_VIEW.get(), packet);
+            missionType = view.missionType();
+            targetSystem = view.targetSystem();
+            targetComponent = view.targetComponent();
+        } else
+        {
+            return;
+        }
+        // Another GCS on the same link may be running its own transfer with the vehicle; only traffic addressed to
+        // this client (or broadcast) drives ours.
+        if ((targetSystem != 0 && targetSystem != client.sysId())
+                || (targetComponent != 0 && targetComponent != client.compId()))
+        {
+            return;
+        }
+        if (transfers.isEmpty())
+        {
+            return;
+        }
+        Transfer<?> transfer = transfers.get(key(packet.getSysId(), packet.getCompId(), missionType));
+        if (transfer == null)
+        {
+            transfer = transfers.get(key(packet.getSysId(), 0, missionType));
+        }
+        if (transfer != null)
+        {
+            synchronized (transfer)
+            {
+                if (!transfer.result.isDone())
+                {
+                    transfer.onPacket(id, packet);
+                }
+            }
+        }
+    }
+
+    private static <V extends MavlinkView> V wrap(V view, MavlinkPacketView packet)
+    {
+        view.wrap(packet);
+        return view;
+    }
+
+    private static int key(int sysId, int compId, int missionType)
+    {
+        return ((sysId & 0xFF) << 16) | ((compId & 0xFF) << 8) | (missionType & 0xFF);
+    }
+
+    // Lost sends are recovered by the retransmit timer, so failures here are not fatal.
+    private void send(int sysId, int compId, MavlinkClient.PacketWriter writer)
+    {
+        try
+        {
+            client.sendTo(sysId, compId, writer);
+        } catch (IllegalStateException ignore)
+        {
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        client.dispatcher().removeRaw(handler);
+        for (Transfer<?> transfer : transfers.values())
+        {
+            synchronized (transfer)
+            {
+                transfer.fail(new IllegalStateException("mission transfer engine closed"));
+            }
+        }
+    }
+
+    private abstract class Transfer<T>
+    {
+        final int sysId;
+        final int compId;
+        final int missionType;
+        final int key;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        MavlinkTimer.Timeout timeout;
+        long lastActivityNanos;
+        int attempts;
+
+        Transfer(int sysId, int compId, int missionType)
+        {
+            this.sysId = sysId & 0xFF;
+            this.compId = compId & 0xFF;
+            this.missionType = missionType & 0xFF;
+            this.key = key(sysId, compId, missionType);
+        }
+
+        abstract void begin();
+
+        abstract void onPacket(int messageId, MavlinkPacketView packet);
+
+        abstract void retransmit();
+
+        void touch()
+        {
+            lastActivityNanos = System.nanoTime();
+            attempts = 0;
+        }
+
+        void schedule(long delayMs)
+        {
+            // The tick retransmits, so it runs on the client's sender thread: a blocking write must not hold up the
+            // shared timer.
+            timeout = timer.schedule(() -> client.sender().execute(this::tick), delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        // One timer entry per transfer; progress only moves lastActivityNanos and the tick re-arms for the rest.
+        synchronized void tick()
+        {
+            if (result.isDone())
+            {
+                return;
+            }
+            long idleMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastActivityNanos);
+            if (idleMs < timeoutMs)
+            {
+                schedule(timeoutMs - idleMs);
+                return;
+            }
+            if (++attempts > maxAttempts)
+            {
+                fail(new MavlinkTimeoutException("mission transfer with " + sysId + "/" + compId
+                        + " timed out after " + maxAttempts + " retries"));
+                return;
+            }
+            lastActivityNanos = System.nanoTime();
+            retransmit();
+            schedule(timeoutMs);
+        }
+
+        void complete(T value)
+        {
+            transfers.remove(key, this);
+            if (timeout != null)
+            {
+                timeout.cancel();
+            }
+            result.complete(value);
+        }
+
+        void fail(Throwable error)
+        {
+            transfers.remove(key, this);
+            if (timeout != null)
+            {
+                timeout.cancel();
+            }
+            result.completeExceptionally(error);
+        }
+
+        void sendAck(int type)
+        {
+            send(sysId, compId, (buf, off) ->
+            {
+                MissionAckView.pack(buf, off + HEADER_LEN, sysId, compId, type, missionType, 0);
+                return client.writeFrame(buf, off, MissionAckView.ID, MissionAckView.CRC,
+                        MissionAckView.LENGTH_V2, MissionAckView.LENGTH_V1);
+            });
+        }
+    }
+
+    private final class Upload extends Transfer<Integer>
+    {
+        private final MissionItems items;
+        private int lastRequested = -1;
+
+        Upload(int sysId, int compId, int missionType, MissionItems items)
+        {
+            super(sysId, compId, missionType);
+            this.items = items;
+        }
+
+        @Override
+        void begin()
+        {
+            sendCount();
+        }
+
+        @Override
+        void onPacket(int messageId, MavlinkPacketView packet)
+        {
+            if (messageId == MissionRequestIntView.ID || messageId == MissionRequestView.ID)
+            {
+                int seq = messageId == MissionRequestIntView.ID ? REQUEST_INT_VIEW.get().seq() : REQUEST_VIEW.get().seq();
+                if (seq < 0 || seq >= items.size())
+                {
+                    return;
+                }
+                touch();
+                lastRequested = seq;
+                sendItem(seq);
+            } else if (messageId == MissionAckView.ID)
+            {
+                complete(ACK_VIEW.get().type());
+            }
+        }
+
+        @Override
+        void retransmit()
+        {
+            if (lastRequested < 0)
+            {
+                sendCount();
+            } else
+            {
+                sendItem(lastRequested);
+            }
+        }
+
+        private void sendCount()
+        {
+            int count = items.size();
+            send(sysId, compId, (buf, off) ->
+            {
+                MissionCountView.pack(buf, off + HEADER_LEN, sysId, compId, count, missionType, 0);
+                return client.writeFrame(buf, off, MissionCountView.ID, MissionCountView.CRC,
+                        MissionCountView.LENGTH_V2, MissionCountView.LENGTH_V1);
+            });
+        }
+
+        // Legacy MISSION_REQUEST is answered with MISSION_ITEM_INT as well.
+        private void sendItem(int seq)
+        {
+            send(sysId, compId, (buf, off) ->
+            {
+                items.writePayload(seq, buf, off + HEADER_LEN, sysId, compId, missionType);
+                return client.writeFrame(buf, off, MissionItemIntView.ID, MissionItemIntView.CRC,
+                        MissionItemIntView.LENGTH_V2, MissionItemIntView.LENGTH_V1);
+            });
+        }
+    }
+
+    private final class Download extends Transfer<MissionItems>
+    {
+        private MissionItems items;
+        private boolean[] received;
+        private int count;
+        private int receivedCount;
+        private int nextRequest;
+        private int outstanding;
+
+        Download(int sysId, int compId, int missionType)
+        {
+            super(sysId, compId, missionType);
+        }
+
+        @Override
+        void begin()
+        {
+            sendRequestList();
+        }
+
+        @Override
+        void onPacket(int messageId, MavlinkPacketView packet)
+        {
+            if (messageId == MissionCountView.ID && items == null)
+            {
+                touch();
+                count = COUNT_VIEW.get().count();
+                items = MissionItems.allocate(count);
+                received = new boolean[count];
+                if (count == 0)
+                {
+                    sendAck(MAV_MISSION_ACCEPTED);
+                    complete(items);
+                    return;
+                }
+                fillWindow();
+            } else if (messageId == MissionItemIntView.ID && items != null)
+            {
+                MissionItemIntView view = ITEM_VIEW.get();
+                int seq = view.seq();
+                if (seq < 0 || seq >= count || received[seq])
+                {
+                    return;
+                }
+                touch();
+                items.put(seq, packet);
+                received[seq] = true;
+                receivedCount++;
+                if (seq < nextRequest)
+                {
+                    outstanding--;
+                }
+                if (receivedCount == count)
+                {
+                    items.size(count);
+                    sendAck(MAV_MISSION_ACCEPTED);
+                    complete(items);
+                    return;
+                }
+                fillWindow();
+            }
+        }
+
+        @Override
+        void retransmit()
+        {
+            if (items == null)
+            {
+                sendRequestList();
+                return;
+            }
+            for (int seq = 0; seq < nextRequest; seq++)
+            {
+                if (!received[seq])
+                {
+                    sendRequest(seq);
+                }
+            }
+        }
+
+        private void fillWindow()
+        {
+            while (outstanding < window && nextRequest < count)
+            {
+                int seq = nextRequest++;
+                if (!received[seq])
+                {
+                    outstanding++;
+                    sendRequest(seq);
+                }
+            }
+        }
+
+        private void sendRequestList()
+        {
+            send(sysId, compId, (buf, off) ->
+            {
+                MissionRequestListView.pack(buf, off + HEADER_LEN, sysId, compId, missionType);
+                return client.writeFrame(buf, off, MissionRequestListView.ID, MissionRequestListView.CRC,
+                        MissionRequestListView.LENGTH_V2, MissionRequestListView.LENGTH_V1);
+            });
+        }
+
+        private void sendRequest(int seq)
+        {
+            send(sysId, compId, (buf, off) ->
+            {
+                MissionRequestIntView.pack(buf, off + HEADER_LEN, sysId, compId, seq, missionType);
+                return client.writeFrame(buf, off, MissionRequestIntView.ID, MissionRequestIntView.CRC,
+                        MissionRequestIntView.LENGTH_V2, MissionRequestIntView.LENGTH_V1);
+            });
+        }
+    }
+
+    public static final class Builder
+    {
+        private final MavlinkClient client;
+        private long timeoutMs = 1000;
+        private int maxAttempts = 5;
+        private int window = 8;
+
+        private Builder(MavlinkClient client)
+        {
+            if (client == null)
+            {
+                throw new IllegalArgumentException("client is null");
+            }
+            this.client = client;
+        }
+
+        // Silence after which the last step is retransmitted.
+        public Builder timeoutMs(long value)
+        {
+            this.timeoutMs = Math.max(1, value);
+            return this;
+        }
+
+        // Consecutive retransmissions without progress before the transfer fails.
+        public Builder maxAttempts(int value)
+        {
+            this.maxAttempts = Math.max(1, value);
+            return this;
+        }
+
+        // Item requests kept in flight during a download.
+        public Builder window(int value)
+        {
+            this.window = Math.max(1, value);
+            return this;
+        }
+
+        public MissionTransferEngine build()
+        {
+            return new MissionTransferEngine(this);
+        }
+    }
+}
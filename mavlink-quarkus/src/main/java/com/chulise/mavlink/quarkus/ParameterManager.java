@@ -0,0 +1,401 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkPacketView;
+import com.chulise.mavlink.messages.ParamRequestListView;
+import com.chulise.mavlink.messages.ParamRequestReadView;
+import com.chulise.mavlink.messages.ParamValueView;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Fetches whole parameter sets with PARAM_REQUEST_LIST and keeps one ParameterTable per vehicle. Values are tracked
+// in a bitset as they stream in; once the stream goes quiet, only the missing indexes are re-requested, a batch at a
+// time. PARAM_VALUE seen later (after PARAM_SET or a change on the vehicle) updates the cached table in place.
+public final class ParameterManager implements AutoCloseable
+{
+    private static final int HEADER_LEN = MavlinkPacketView.HEADER_LEN_V2;
+    private static final byte[] NO_ID = new byte[ParameterTable.ID_LEN];
+    private static final ThreadLocal<ParamValueView> VALUE_VIEW = ThreadLocal.withInitial(ParamValueView::new);
+
+    private final MavlinkClient client;
+    private final MavlinkTimer timer;
+    private final long timeoutMs;
+    private final int maxAttempts;
+    private final int batch;
+    private final ConcurrentHashMap<Integer, ParameterTable> tables = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Fetch> fetches = new ConcurrentHashMap<>();
+    private final MavlinkHandlerInvoker handler = arg -> onPacket((MavlinkPacketView) arg);
+
+    private ParameterManager(Builder builder)
+    {
+        this.client = builder.client;
+        this.timer = client.timer();
+        this.timeoutMs = builder.timeoutMs;
+        this.maxAttempts = builder.maxAttempts;
+        this.batch = builder.batch;
+        client.dispatcher().registerRaw(handler);
+    }
+
+    public static Builder builder(MavlinkClient client)
+    {
+        return new Builder(client);
+    }
+
+    // Completes with the full table. A second call while a fetch for the same vehicle runs joins that fetch.
+    // compId 0 asks every component; the fetch then binds to the first one that answers, and the table is cached
+    // under that component's id, never under 0.
+    public CompletableFuture<ParameterTable> fetchAll(int sysId, int compId)
+    {
+        Fetch fetch = new Fetch(sysId, compId);
+        Fetch running = fetches.putIfAbsent(fetch.key, fetch);
+        if (running != null)
+        {
+            return running.result;
+        }
+        synchronized (fetch)
+        {
+            fetch.touch();
+            fetch.sendRequestList();
+            fetch.schedule(timeoutMs);
+        }
+        return fetch.result;
+    }
+
+    // Cached table from the last completed fetch, or null when there is none or it was invalidated.
+    public ParameterTable table(int sysId, int compId)
+    {
+        return tables.get(key(sysId, compId));
+    }
+
+    // Served from the cache; throws when no table is cached for the vehicle.
+    public float value(int sysId, int compId, String id, float defaultValue)
+    {
+        ParameterTable table = tables.get(key(sysId, compId));
+        if (table == null)
+        {
+            throw new IllegalStateException("no parameters cached for " + sysId + "/" + compId);
+        }
+        return table.value(id, defaultValue);
+    }
+
+    public void invalidate(int sysId, int compId)
+    {
+        tables.remove(key(sysId, compId));
+    }
+
+    private void onPacket(MavlinkPacketView packet)
+    {
+        if (packet.getMessageId() != ParamValueView.ID)
+        {
+            return;
+        }
+        ParamValueView view = VALUE_VIEW.get();
+        view.wrap(packet);
+        int key = key(packet.getSysId(), packet.getCompId());
+        if (!fetches.isEmpty())
+        {
+            Fetch fetch = fetches.get(key);
+            if (fetch == null)
+            {
+                fetch = fetches.get(key(packet.getSysId(), 0));
+            }
+            if (fetch != null)
+            {
+                synchronized (fetch)
+                {
+                    if (!fetch.result.isDone())
+                    {
+                        fetch.onValue(view, packet.getCompId());
+                    }
+                }
+                return;
+            }
+        }
+        ParameterTable table = tables.get(key);
+        if (table == null)
+        {
+            return;
+        }
+        if (view.paramCount() != table.size())
+        {
+            // The vehicle's parameter set changed shape; indexes in the cached table no longer line up.
+            tables.remove(key, table);
+            return;
+        }
+        table.store(view);
+    }
+
+    private static int key(int sysId, int compId)
+    {
+        return ((sysId & 0xFF) << 8) | (compId & 0xFF);
+    }
+
+    // Lost sends are recovered by the retransmit timer, so failures here are not fatal.
+    private void send(int sysId, int compId, MavlinkClient.PacketWriter writer)
+    {
+        try
+        {
+            client.sendTo(sysId, compId, writer);
+        } catch (IllegalStateException ignore)
+        {
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        client.dispatcher().removeRaw(handler);
+        for (Fetch fetch : fetches.values())
+        {
+            synchronized (fetch)
+            {
+                fetch.fail(new IllegalStateException("parameter manager closed"));
+            }
+        }
+    }
+
+    private final class Fetch
+    {
+        final int sysId;
+        // Rebound from 0 to the first answering component; guarded by the fetch's monitor once registered.
+        int compId;
+        int key;
+        final CompletableFuture<ParameterTable> result = new CompletableFuture<>();
+        ParameterTable table;
+        MavlinkTimer.Timeout timeout;
+        long lastActivityNanos;
+        int attempts;
+        boolean filling;
+        int cursor;
+        int outstanding;
+
+        Fetch(int sysId, int compId)
+        {
+            this.sysId = sysId & 0xFF;
+            this.compId = compId & 0xFF;
+            this.key = key(sysId, compId);
+        }
+
+        void touch()
+        {
+            lastActivityNanos = System.nanoTime();
+            attempts = 0;
+        }
+
+        void schedule(long delayMs)
+        {
+            // The tick retransmits, so it runs on the client's sender thread: a blocking write must not hold up the
+            // shared timer.
+            timeout = timer.schedule(() -> client.sender().execute(this::tick), delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        void onValue(ParamValueView view, int sourceCompId)
+        {
+            if (compId == 0 && (sourceCompId == 0 || !bind(sourceCompId)))
+            {
+                return;
+            }
+            if (sourceCompId != compId)
+            {
+                // Another component answered a broadcast request after the fetch bound to the first one.
+                return;
+            }
+            if (table == null)
+            {
+                table = new ParameterTable(view.paramCount());
+                if (table.isComplete())
+                {
+                    complete();
+                    return;
+                }
+            } else if (view.paramCount() != table.size())
+            {
+                return;
+            }
+            int index = view.paramIndex();
+            if (!table.store(view))
+            {
+                return;
+            }
+            touch();
+            if (table.isComplete())
+            {
+                complete();
+                return;
+            }
+            if (filling)
+            {
+                if (index < cursor)
+                {
+                    outstanding--;
+                }
+                fillBatch();
+            }
+        }
+
+        // Moves a broadcast fetch to the key of the component that answered, so its values are not merged with
+        // other components' and the table lands where table(sysId, compId) looks. Joins a fetch already running
+        // for that component instead.
+        private boolean bind(int sourceCompId)
+        {
+            int bound = key(sysId, sourceCompId);
+            Fetch running = fetches.putIfAbsent(bound, this);
+            fetches.remove(key, this);
+            if (running != null)
+            {
+                if (timeout != null)
+                {
+                    timeout.cancel();
+                }
+                running.result.whenComplete((t, e) ->
+                {
+                    if (e != null)
+                    {
+                        result.completeExceptionally(e);
+                    } else
+                    {
+                        result.complete(t);
+                    }
+                });
+                return false;
+            }
+            compId = sourceCompId & 0xFF;
+            key = bound;
+            return true;
+        }
+
+        // One timer entry per fetch. While the list streams in, activity keeps pushing it out; the first quiet
+        // period switches to re-requesting the gaps.
+        synchronized void tick()
+        {
+            if (result.isDone())
+            {
+                return;
+            }
+            long idleMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastActivityNanos);
+            if (idleMs < timeoutMs)
+            {
+                schedule(timeoutMs - idleMs);
+                return;
+            }
+            if (++attempts > maxAttempts)
+            {
+                fail(new MavlinkTimeoutException("parameter fetch from " + sysId + "/" + compId + " timed out with "
+                        + (table == null ? 0 : table.received()) + " of "
+                        + (table == null ? "?" : String.valueOf(table.size())) + " received"));
+                return;
+            }
+            lastActivityNanos = System.nanoTime();
+            if (table == null)
+            {
+                sendRequestList();
+            } else
+            {
+                filling = true;
+                cursor = 0;
+                outstanding = 0;
+                fillBatch();
+            }
+            schedule(timeoutMs);
+        }
+
+        private void fillBatch()
+        {
+            while (outstanding < batch)
+            {
+                int index = table.nextMissing(cursor);
+                if (index < 0)
+                {
+                    return;
+                }
+                cursor = index + 1;
+                outstanding++;
+                sendRequestRead(index);
+            }
+        }
+
+        void complete()
+        {
+            fetches.remove(key, this);
+            if (timeout != null)
+            {
+                timeout.cancel();
+            }
+            tables.put(key, table);
+            result.complete(table);
+        }
+
+        void fail(Throwable error)
+        {
+            fetches.remove(key, this);
+            if (timeout != null)
+            {
+                timeout.cancel();
+            }
+            result.completeExceptionally(error);
+        }
+
+        void sendRequestList()
+        {
+            send(sysId, compId, (buf, off) ->
+            {
+                ParamRequestListView.pack(buf, off + HEADER_LEN, sysId, compId);
+                return client.writeFrame(buf, off, ParamRequestListView.ID, ParamRequestListView.CRC,
+                        ParamRequestListView.LENGTH_V2, ParamRequestListView.LENGTH_V1);
+            });
+        }
+
+        private void sendRequestRead(int index)
+        {
+            send(sysId, compId, (buf, off) ->
+            {
+                ParamRequestReadView.pack(buf, off + HEADER_LEN, sysId, compId, NO_ID, (short) index);
+                return client.writeFrame(buf, off, ParamRequestReadView.ID, ParamRequestReadView.CRC,
+                        ParamRequestReadView.LENGTH_V2, ParamRequestReadView.LENGTH_V1);
+            });
+        }
+    }
+
+    public static final class Builder
+    {
+        private final MavlinkClient client;
+        private long timeoutMs = 1000;
+        private int maxAttempts = 5;
+        private int batch = 16;
+
+        private Builder(MavlinkClient client)
+        {
+            if (client == null)
+            {
+                throw new IllegalArgumentException("client is null");
+            }
+            this.client = client;
+        }
+
+        // Quiet period after which missing indexes are re-requested.
+        public Builder timeoutMs(long value)
+        {
+            this.timeoutMs = Math.max(1, value);
+            return this;
+        }
+
+        // Consecutive quiet periods without a new value before the fetch fails.
+        public Builder maxAttempts(int value)
+        {
+            this.maxAttempts = Math.max(1, value);
+            return this;
+        }
+
+        // PARAM_REQUEST_READ messages kept in flight while filling gaps.
+        public Builder batch(int value)
+        {
+            this.batch = Math.max(1, value);
+            return this;
+        }
+
+        public ParameterManager build()
+        {
+            return new ParameterManager(this);
+        }
+    }
+}
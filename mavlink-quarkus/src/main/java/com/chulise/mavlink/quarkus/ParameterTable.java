@@ -0,0 +1,205 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.messages.ParamValueView;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+
+// One vehicle's parameters in flat arrays indexed by param_index, with an open-addressed id-to-index hash so lookups
+// by name neither allocate nor walk the table.
+public final class ParameterTable
+{
+    static final int ID_LEN = 16;
+
+    private final int count;
+    private final byte[] ids;
+    private final float[] values;
+    private final byte[] types;
+    private final BitSet received;
+    private final int[] slots;
+    private final int mask;
+    private int receivedCount;
+
+    ParameterTable(int count)
+    {
+        this.count = count;
+        this.ids = new byte[count * ID_LEN];
+        this.values = new float[count];
+        this.types = new byte[count];
+        this.received = new BitSet(count);
+        int size = Integer.highestOneBit(Math.max(8, count * 2) - 1) << 1;
+        this.slots = new int[size];
+        this.mask = size - 1;
+    }
+
+    public int size()
+    {
+        return count;
+    }
+
+    public synchronized int received()
+    {
+        return receivedCount;
+    }
+
+    public synchronized boolean isComplete()
+    {
+        return receivedCount == count;
+    }
+
+    public synchronized boolean has(int index)
+    {
+        return index >= 0 && index < count && received.get(index);
+    }
+
+    // Index of the parameter, or -1 when it has not been received.
+    public synchronized int index(String id)
+    {
+        int idx = hash(id) & mask;
+        while (true)
+        {
+            int slot = slots[idx];
+            if (slot == 0)
+            {
+                return -1;
+            }
+            if (idEquals(slot - 1, id))
+            {
+                return slot - 1;
+            }
+            idx = (idx + 1) & mask;
+        }
+    }
+
+    public synchronized String id(int index)
+    {
+        int base = index * ID_LEN;
+        int len = 0;
+        while (len < ID_LEN && ids[base + len] != 0)
+        {
+            len++;
+        }
+        return new String(ids, base, len, StandardCharsets.US_ASCII);
+    }
+
+    public synchronized float value(int index)
+    {
+        return values[index];
+    }
+
+    // MAV_PARAM_TYPE of the parameter.
+    public synchronized int type(int index)
+    {
+        return types[index] & 0xFF;
+    }
+
+    public synchronized float value(String id, float defaultValue)
+    {
+        int index = index(id);
+        return index < 0 ? defaultValue : values[index];
+    }
+
+    // Stores the value at its index, or looks it up by id when the sender left param_index at 65535.
+    // Returns true when the index was not received before.
+    synchronized boolean store(ParamValueView view)
+    {
+        int index = view.paramIndex();
+        if (index == 0xFFFF)
+        {
+            index = indexOf(view);
+            if (index < 0)
+            {
+                return false;
+            }
+        }
+        if (index >= count)
+        {
+            return false;
+        }
+        values[index] = view.paramValue();
+        types[index] = (byte) view.paramType();
+        if (received.get(index))
+        {
+            return false;
+        }
+        int base = index * ID_LEN;
+        int h = 1;
+        for (int i = 0; i < ID_LEN; i++)
+        {
+            int b = view.paramId(i);
+            ids[base + i] = (byte) b;
+            h = b == 0 ? h : 31 * h + b;
+        }
+        int idx = h & mask;
+        while (slots[idx] != 0)
+        {
+            idx = (idx + 1) & mask;
+        }
+        slots[idx] = index + 1;
+        received.set(index);
+        receivedCount++;
+        return true;
+    }
+
+    // Next index at or after from that is still missing, or -1.
+    synchronized int nextMissing(int from)
+    {
+        int index = received.nextClearBit(from);
+        return index < count ? index : -1;
+    }
+
+    private int indexOf(ParamValueView view)
+    {
+        int h = 1;
+        for (int i = 0; i < ID_LEN; i++)
+        {
+            int b = view.paramId(i);
+            h = b == 0 ? h : 31 * h + b;
+        }
+        int idx = h & mask;
+        while (true)
+        {
+            int slot = slots[idx];
+            if (slot == 0)
+            {
+                return -1;
+            }
+            int base = (slot - 1) * ID_LEN;
+            int i = 0;
+            while (i < ID_LEN && (ids[base + i] & 0xFF) == view.paramId(i))
+            {
+                i++;
+            }
+            if (i == ID_LEN)
+            {
+                return slot - 1;
+            }
+            idx = (idx + 1) & mask;
+        }
+    }
+
+    // Ids are NUL-padded ASCII; the hash skips padding so wire bytes and Java strings hash alike.
+    private static int hash(String id)
+    {
+        int h = 1;
+        int len = Math.min(id.length(), ID_LEN);
+        for (int i = 0; i < len; i++)
+        {
+            h = 31 * h + (id.charAt(i) & 0xFF);
+        }
+        return h;
+    }
+
+    private boolean idEquals(int index, String id)
+    {
+        int base = index * ID_LEN;
+        int len = Math.min(id.length(), ID_LEN);
+        for (int i = 0; i < len; i++)
+        {
+            if ((ids[base + i] & 0xFF) != (id.charAt(i) & 0xFF))
+            {
+                return false;
+            }
+        }
+        return len == ID_LEN || ids[base + len] == 0;
+    }
+}
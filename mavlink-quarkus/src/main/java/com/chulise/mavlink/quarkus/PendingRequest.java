@@ -2,38 +2,45 @@ package com.chulise.mavlink.quarkus;
 
 import com.chulise.mavlink.core.MavlinkView;
 import com.chulise.mavlink.core.MavlinkPacketView;
+import com.chulise.mavlink.core.MavlinkViewFactory;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 final class PendingRequest
 {
     final int messageId;
-    final long expireAt;
     final int expectedSysId;
     final int expectedCompId;
     final int expectedLinkId;
     final MavlinkResponseMatcher matcher;
     final CompletableFuture<?> future;
-    final Class<? extends MavlinkView> responseType;
+    final MavlinkViewFactory<?> factory;
+    final MavlinkResponsePool pool;
+    volatile MavlinkTimer.Timeout timeout;
+    volatile boolean expired;
+    AtomicInteger counter;
+    long key;
+    PendingRequest next;
 
     PendingRequest(int messageId,
-                   long expireAt,
                    int expectedSysId,
                    int expectedCompId,
                    int expectedLinkId,
                    MavlinkResponseMatcher matcher,
                    CompletableFuture<?> future,
-                   Class<? extends MavlinkView> responseType)
+                   MavlinkViewFactory<?> factory,
+                   MavlinkResponsePool pool)
     {
         this.messageId = messageId;
-        this.expireAt = expireAt;
         this.expectedSysId = expectedSysId;
         this.expectedCompId = expectedCompId;
         this.expectedLinkId = expectedLinkId;
         this.matcher = matcher;
         this.future = future;
-        this.responseType = responseType;
+        this.factory = factory;
+        this.pool = pool;
     }
 
     boolean matches(MavlinkPacketView packet)
@@ -77,35 +84,37 @@ final class PendingRequest
             return;
         }
 
-        ByteBuffer copy = copyPacket(packet);
         try
         {
-            MavlinkView view = responseType.getDeclaredConstructor().newInstance();
-            MavlinkPacketView viewPacket = new MavlinkPacketView();
-            viewPacket.wrap(copy, 0);
-            view.wrap(viewPacket);
+            if (pool != null)
+            {
+                MavlinkResponse<?> response = pool.acquire();
+                response.fill(packet, factory);
+                @SuppressWarnings("unchecked")
+                CompletableFuture<MavlinkResponse<?>> f = (CompletableFuture<MavlinkResponse<?>>) future;
+                if (!f.complete(response))
+                {
+                    response.release();
+                }
+                return;
+            }
+
+            MavlinkView view = factory.newView();
+            view.wrapPayload(copyPayload(packet, view.getLengthV2()), 0);
             @SuppressWarnings("unchecked")
             CompletableFuture<MavlinkView> f = (CompletableFuture<MavlinkView>) future;
             f.complete(view);
-        } catch (Exception e)
+        } catch (RuntimeException e)
         {
             future.completeExceptionally(e);
         }
     }
 
-    private static ByteBuffer copyPacket(MavlinkPacketView packet)
+    private static ByteBuffer copyPayload(MavlinkPacketView packet, int definedLen)
     {
-        int headerLen = packet.isV2() ? MavlinkPacketView.HEADER_LEN_V2 : MavlinkPacketView.HEADER_LEN_V1;
-        int total = headerLen + packet.getPayloadLength() + 2 + packet.getSignatureLength();
-        int start = packet.getPayloadOffset() - headerLen;
-
-        ByteBuffer src = packet.getBuffer();
-        ByteBuffer dst = ByteBuffer.allocate(total).order(ByteOrder.LITTLE_ENDIAN);
-        for (int i = 0; i < total; i++)
-        {
-            dst.put(src.get(start + i));
-        }
-        dst.flip();
+        int len = packet.getPayloadLength();
+        ByteBuffer dst = ByteBuffer.allocate(Math.max(len, definedLen)).order(ByteOrder.LITTLE_ENDIAN);
+        packet.getBuffer().get(packet.getPayloadOffset(), dst.array(), 0, len);
         return dst;
     }
 }
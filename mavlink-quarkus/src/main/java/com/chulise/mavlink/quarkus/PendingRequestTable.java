@@ -0,0 +1,171 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkPacketView;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class PendingRequestTable
+{
+    private static final int SEGMENT_BITS = 4;
+    private static final int INITIAL_BUCKETS = 16;
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+    private final AtomicInteger size = new AtomicInteger();
+
+    PendingRequestTable()
+    {
+        for (int i = 0; i < segments.length; i++)
+        {
+            segments[i] = new Segment();
+        }
+    }
+
+    int size()
+    {
+        return size.get();
+    }
+
+    boolean add(long key, PendingRequest req, int maxSize)
+    {
+        if (size.incrementAndGet() > maxSize)
+        {
+            size.decrementAndGet();
+            return false;
+        }
+        int h = mix(key);
+        req.key = key;
+        segmentFor(h).add(h, req);
+        return true;
+    }
+
+    PendingRequest removeMatch(long key, MavlinkPacketView packet)
+    {
+        int h = mix(key);
+        PendingRequest req = segmentFor(h).removeMatch(h, key, packet);
+        if (req != null)
+        {
+            size.decrementAndGet();
+        }
+        return req;
+    }
+
+    boolean remove(PendingRequest req)
+    {
+        int h = mix(req.key);
+        if (segmentFor(h).remove(h, req))
+        {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private Segment segmentFor(int h)
+    {
+        return segments[h >>> (32 - SEGMENT_BITS)];
+    }
+
+    private static int mix(long key)
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static final class Segment
+    {
+        private PendingRequest[] buckets = new PendingRequest[INITIAL_BUCKETS];
+        private int count;
+
+        synchronized void add(int h, PendingRequest req)
+        {
+            if (count >= buckets.length - (buckets.length >>> 2))
+            {
+                resize();
+            }
+            link(buckets, h & (buckets.length - 1), req);
+            count++;
+        }
+
+        synchronized PendingRequest removeMatch(int h, long key, MavlinkPacketView packet)
+        {
+            int idx = h & (buckets.length - 1);
+            PendingRequest prev = null;
+            PendingRequest cur = buckets[idx];
+            while (cur != null)
+            {
+                if (cur.key == key && cur.matches(packet))
+                {
+                    unlink(idx, prev, cur);
+                    return cur;
+                }
+                prev = cur;
+                cur = cur.next;
+            }
+            return null;
+        }
+
+        synchronized boolean remove(int h, PendingRequest req)
+        {
+            int idx = h & (buckets.length - 1);
+            PendingRequest prev = null;
+            PendingRequest cur = buckets[idx];
+            while (cur != null)
+            {
+                if (cur == req)
+                {
+                    unlink(idx, prev, cur);
+                    return true;
+                }
+                prev = cur;
+                cur = cur.next;
+            }
+            return false;
+        }
+
+        private void unlink(int idx, PendingRequest prev, PendingRequest cur)
+        {
+            if (prev == null)
+            {
+                buckets[idx] = cur.next;
+            } else
+            {
+                prev.next = cur.next;
+            }
+            cur.next = null;
+            count--;
+        }
+
+        private void resize()
+        {
+            PendingRequest[] old = buckets;
+            PendingRequest[] next = new PendingRequest[old.length << 1];
+            for (PendingRequest head : old)
+            {
+                PendingRequest cur = head;
+                while (cur != null)
+                {
+                    PendingRequest following = cur.next;
+                    cur.next = null;
+                    link(next, mix(cur.key) & (next.length - 1), cur);
+                    cur = following;
+                }
+            }
+            buckets = next;
+        }
+
+        // Appends at the tail so requests sharing a key complete in registration order.
+        private static void link(PendingRequest[] table, int idx, PendingRequest req)
+        {
+            PendingRequest cur = table[idx];
+            if (cur == null)
+            {
+                table[idx] = req;
+                return;
+            }
+            while (cur.next != null)
+            {
+                cur = cur.next;
+            }
+            cur.next = req;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.tlog.TlogReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Feeds recorded frames into a lane; rate 0 replays as fast as possible, otherwise scales the recorded timing.
+final class ReplayTransport implements MavlinkTransport
+{
+    private static final long DEFAULT_SPIN_NANOS = 50_000L;
+
+    private final List<Path> sources;
+    private final double rate;
+    private final boolean loop;
+    private final long spinNanos;
+    private volatile boolean running;
+    private Thread worker;
+
+    ReplayTransport(MavlinkReplayConfig cfg)
+    {
+        if (cfg == null || cfg.files == null || cfg.files.isEmpty())
+        {
+            throw new IllegalStateException("replay transport requires replay.files");
+        }
+        this.sources = new ArrayList<>(cfg.files.size());
+        for (String file : cfg.files)
+        {
+            sources.add(Path.of(file));
+        }
+        this.rate = cfg.rate != null ? Math.max(0f, cfg.rate) : 1.0;
+        this.loop = cfg.loop != null && cfg.loop;
+        this.spinNanos = cfg.spinNanos != null ? Math.max(0, cfg.spinNanos) : DEFAULT_SPIN_NANOS;
+    }
+
+    @Override
+    public boolean isStream()
+    {
+        return false;
+    }
+
+    @Override
+    public void start(Supplier<MavlinkInboundLane> lanes)
+    {
+        if (running)
+        {
+            return;
+        }
+        List<Path> files = resolveFiles();
+        running = true;
+        MavlinkInboundLane lane = lanes.get();
+        worker = new Thread(() -> replayLoop(files, lane), "mavlink-replay");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private List<Path> resolveFiles()
+    {
+        List<Path> files = new ArrayList<>();
+        for (Path source : sources)
+        {
+            if (!Files.isDirectory(source))
+            {
+                files.add(source);
+                continue;
+            }
+            try (Stream<Path> list = Files.list(source))
+            {
+                list.filter(p -> p.getFileName().toString().endsWith(".tlog"))
+                        .sorted()
+                        .forEach(files::add);
+            } catch (IOException e)
+            {
+                throw new UncheckedIOException("cannot list replay directory: " + source, e);
+            }
+        }
+        if (files.isEmpty())
+        {
+            throw new IllegalStateException("replay found no .tlog files");
+        }
+        return files;
+    }
+
+    private void replayLoop(List<Path> files, MavlinkInboundLane lane)
+    {
+        try
+        {
+            do
+            {
+                long firstTimestamp = Long.MIN_VALUE;
+                long startNanos = 0;
+                for (Path file : files)
+                {
+                    try (TlogReader reader = TlogReader.open(file))
+                    {
+                        TlogReader.Cursor cursor = reader.cursor();
+                        while (running && cursor.next())
+                        {
+                            if (rate > 0)
+                            {
+                                if (firstTimestamp == Long.MIN_VALUE)
+                                {
+                                    firstTimestamp = cursor.timestampMicros();
+                                    startNanos = System.nanoTime();
+                                }
+                                long offsetNanos = (long) ((cursor.timestampMicros() - firstTimestamp) * 1000.0 / rate);
+                                awaitDeadline(startNanos + offsetNanos);
+                            }
+                            ByteBuffer frames = cursor.buffer();
+                            frames.limit(cursor.frameOffset() + cursor.frameLength());
+                            frames.position(cursor.frameOffset());
+                            lane.onData(frames);
+                            frames.limit(frames.capacity());
+                        }
+                    }
+                    if (!running)
+                    {
+                        return;
+                    }
+                }
+            } while (loop && running);
+        } finally
+        {
+            lane.close();
+        }
+    }
+
+    // Parks until close to the deadline, then spins the rest to avoid the scheduler's wakeup jitter.
+    private void awaitDeadline(long deadline)
+    {
+        long remaining = deadline - System.nanoTime();
+        while (remaining > spinNanos && running)
+        {
+            LockSupport.parkNanos(remaining - spinNanos);
+            remaining = deadline - System.nanoTime();
+        }
+        while (remaining > 0 && running)
+        {
+            Thread.onSpinWait();
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    @Override
+    public void send(ByteBuffer buffer, int offset, int length)
+    {
+        // Replay has no peer; outbound frames are discarded.
+    }
+
+    @Override
+    public void close()
+    {
+        running = false;
+        if (worker != null)
+        {
+            LockSupport.unpark(worker);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkIdleStrategy;
+import com.chulise.mavlink.core.shm.MavlinkShmRing;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+// Subscribes to a ring published by another process on the same host. Each frame is copied out of the mapping and
+// checked against the producer's slot sequence before it is parsed, so a frame overwritten mid-copy is dropped.
+// Outbound frames go to a second ring this transport owns, when shm.outbound-path is set.
+final class ShmTransport implements MavlinkTransport
+{
+    static final int DEFAULT_SLOTS = 4096;
+    static final int DEFAULT_SLOT_SIZE = MavlinkShmRing.MIN_SLOT_SIZE;
+    private static final int POLL_LIMIT = 64;
+    private static final long ATTACH_RETRY_NANOS = 100_000_000L;
+
+    private final Path path;
+    private final Path outboundPath;
+    private final int slots;
+    private final int slotSize;
+    private final String idle;
+    private volatile boolean running;
+    private Thread worker;
+    private MavlinkShmRing outbound;
+    private MavlinkShmRing.Publisher publisher;
+
+    ShmTransport(MavlinkShmConfig cfg)
+    {
+        if (cfg == null || cfg.path == null || cfg.path.isBlank())
+        {
+            throw new IllegalStateException("shm transport requires shm.path");
+        }
+        this.path = Path.of(cfg.path.trim());
+        this.outboundPath = cfg.outboundPath != null && !cfg.outboundPath.isBlank() ? Path.of(cfg.outboundPath.trim()) : null;
+        this.slots = cfg.slots != null ? cfg.slots : DEFAULT_SLOTS;
+        this.slotSize = cfg.slotSize != null ? cfg.slotSize : DEFAULT_SLOT_SIZE;
+        this.idle = cfg.idle;
+    }
+
+    @Override
+    public boolean isStream()
+    {
+        return false;
+    }
+
+    @Override
+    public void start(Supplier<MavlinkInboundLane> lanes)
+    {
+        if (running)
+        {
+            return;
+        }
+        MavlinkIdleStrategy strategy = MavlinkIdleStrategy.fromName(idle);
+        if (outboundPath != null)
+        {
+            outbound = MavlinkShmRing.create(outboundPath, slots, slotSize);
+            publisher = outbound.publisher();
+        }
+        running = true;
+        MavlinkInboundLane lane = lanes.get();
+        worker = new Thread(() -> pollLoop(lane, strategy), "mavlink-shm");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void pollLoop(MavlinkInboundLane lane, MavlinkIdleStrategy strategy)
+    {
+        MavlinkShmRing ring = null;
+        try
+        {
+            ring = attach();
+            if (ring == null)
+            {
+                return;
+            }
+            MavlinkShmRing.Subscriber subscriber = ring.subscriber();
+            MavlinkShmRing.FrameHandler handler = (packet, buffer, offset, length) ->
+            {
+                buffer.limit(offset + length);
+                buffer.position(offset);
+                lane.onData(buffer);
+                buffer.limit(buffer.capacity());
+            };
+            while (running)
+            {
+                strategy.idle(subscriber.poll(handler, POLL_LIMIT));
+            }
+        } finally
+        {
+            if (ring != null)
+            {
+                ring.close();
+            }
+            lane.close();
+        }
+    }
+
+    // The publishing process may start later; keep retrying until its ring appears.
+    private MavlinkShmRing attach()
+    {
+        while (running)
+        {
+            if (Files.exists(path))
+            {
+                try
+                {
+                    return MavlinkShmRing.open(path);
+                } catch (IllegalStateException | UncheckedIOException e)
+                {
+                    // Still being created.
+                }
+            }
+            LockSupport.parkNanos(ATTACH_RETRY_NANOS);
+        }
+        return null;
+    }
+
+    @Override
+    public void send(ByteBuffer buffer, int offset, int length)
+    {
+        MavlinkShmRing.Publisher p = publisher;
+        if (p == null)
+        {
+            throw new IllegalStateException("shm transport has no shm.outbound-path");
+        }
+        synchronized (p)
+        {
+            p.publish(buffer, offset, length);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        running = false;
+        if (worker != null)
+        {
+            LockSupport.unpark(worker);
+        }
+        if (outbound != null)
+        {
+            outbound.close();
+        }
+    }
+}
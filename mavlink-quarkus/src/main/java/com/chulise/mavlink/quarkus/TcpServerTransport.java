@@ -1,28 +1,42 @@
 package com.chulise.mavlink.quarkus;
 
 import java.io.IOException;
-import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.function.Consumer;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 final class TcpServerTransport implements MavlinkTransport
 {
-    private final InetSocketAddress bind;
+    private static final int MAX_QUEUED_BYTES = 1 << 20;
+
+    private final SocketAddress bind;
     private final int bufferSize;
-    private final List<SocketChannel> clients = new CopyOnWriteArrayList<>();
+    private final boolean unix;
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
     private volatile boolean running;
+    private Selector selector;
     private ServerSocketChannel server;
-    private Thread acceptThread;
-    private volatile SocketChannel lastActive;
+    private Thread loopThread;
+    private volatile Connection lastActive;
 
-    TcpServerTransport(InetSocketAddress bind, int bufferSize)
+    TcpServerTransport(SocketAddress bind, int bufferSize)
     {
         this.bind = bind;
         this.bufferSize = Math.max(1024, bufferSize);
+        this.unix = bind instanceof UnixDomainSocketAddress;
     }
 
     @Override
@@ -32,7 +46,7 @@ final class TcpServerTransport implements MavlinkTransport
     }
 
     @Override
-    public void start(Consumer<ByteBuffer> onPacket)
+    public void start(Supplier<MavlinkInboundLane> lanes)
     {
         if (running)
         {
@@ -42,108 +56,185 @@ final class TcpServerTransport implements MavlinkTransport
         {
             throw new IllegalStateException("TCP server bind is required");
         }
-        running = true;
-        acceptThread = new Thread(() -> acceptLoop(onPacket), "mavlink-tcp-accept");
-        acceptThread.setDaemon(true);
-        acceptThread.start();
-    }
-
-    private void acceptLoop(Consumer<ByteBuffer> onPacket)
-    {
-        try (ServerSocketChannel srv = ServerSocketChannel.open())
+        try
         {
-            this.server = srv;
-            srv.bind(bind);
-            while (running)
+            selector = Selector.open();
+            if (unix)
             {
-                SocketChannel ch = srv.accept();
-                if (ch == null)
-                {
-                    continue;
-                }
-                ch.configureBlocking(true);
-                clients.add(ch);
-                Thread t = new Thread(() -> readLoop(ch, onPacket), "mavlink-tcp-client");
-                t.setDaemon(true);
-                t.start();
+                // A socket file left behind by a previous run would make bind fail.
+                Files.deleteIfExists(((UnixDomainSocketAddress) bind).getPath());
+                server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            } else
+            {
+                server = ServerSocketChannel.open();
             }
+            server.bind(bind);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
         } catch (IOException e)
         {
+            close();
             throw new IllegalStateException("TCP server transport error", e);
         }
+        running = true;
+        loopThread = new Thread(() -> eventLoop(lanes), unix ? "mavlink-unix-server" : "mavlink-tcp-server");
+        loopThread.setDaemon(true);
+        loopThread.start();
     }
 
-    private void readLoop(SocketChannel ch, Consumer<ByteBuffer> onPacket)
+    private void eventLoop(Supplier<MavlinkInboundLane> lanes)
     {
         ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
         try
         {
-            while (running && ch.isOpen())
+            while (running)
             {
-                buffer.clear();
-                int n = ch.read(buffer);
-                if (n < 0)
+                selector.select();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext())
                 {
-                    break;
-                }
-                if (n > 0)
-                {
-                    lastActive = ch;
-                    buffer.flip();
-                    onPacket.accept(buffer);
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid())
+                    {
+                        continue;
+                    }
+                    if (key.isAcceptable())
+                    {
+                        accept(lanes);
+                        continue;
+                    }
+                    Connection conn = (Connection) key.attachment();
+                    try
+                    {
+                        if (key.isReadable())
+                        {
+                            read(conn, buffer);
+                        }
+                        if (key.isValid() && key.isWritable())
+                        {
+                            conn.flush();
+                        }
+                    } catch (IOException | RuntimeException e)
+                    {
+                        // Only this client goes down, including when a tap or handler fails on its data.
+                        drop(conn);
+                    }
                 }
             }
-        } catch (IOException e)
+        } catch (IOException | ClosedSelectorException e)
         {
-            // ignore
-        } finally
-        {
-            clients.remove(ch);
-            try
-            {
-                ch.close();
-            } catch (IOException ignore)
+            if (running)
             {
+                throw new IllegalStateException("TCP server transport error", e);
             }
         }
     }
 
+    private void accept(Supplier<MavlinkInboundLane> lanes) throws IOException
+    {
+        SocketChannel ch;
+        while ((ch = server.accept()) != null)
+        {
+            ch.configureBlocking(false);
+            Connection conn = new Connection(ch, lanes.get());
+            conn.key = ch.register(selector, SelectionKey.OP_READ, conn);
+            connections.add(conn);
+        }
+    }
+
+    private void read(Connection conn, ByteBuffer buffer) throws IOException
+    {
+        buffer.clear();
+        int n = conn.channel.read(buffer);
+        if (n < 0)
+        {
+            drop(conn);
+            return;
+        }
+        if (n > 0)
+        {
+            lastActive = conn;
+            buffer.flip();
+            conn.lane.onData(buffer);
+        }
+    }
+
+    private void drop(Connection conn)
+    {
+        if (!connections.remove(conn))
+        {
+            return;
+        }
+        if (lastActive == conn)
+        {
+            lastActive = null;
+        }
+        conn.close();
+    }
+
     @Override
     public void send(ByteBuffer buffer, int offset, int length)
     {
-        SocketChannel dst = selectTarget();
+        Connection dst = selectTarget();
         if (dst == null)
         {
             throw new IllegalStateException("TCP server has no active client");
         }
+        write(dst, buffer, offset, length);
+    }
+
+    @Override
+    public int broadcast(ByteBuffer buffer, int offset, int length)
+    {
+        int sent = 0;
+        for (Connection conn : connections)
+        {
+            try
+            {
+                write(conn, buffer, offset, length);
+                sent++;
+            } catch (IllegalStateException ignore)
+            {
+                // One slow or broken client must not stop the others.
+            }
+        }
+        return sent;
+    }
+
+    private void write(Connection conn, ByteBuffer buffer, int offset, int length)
+    {
         ByteBuffer dup = buffer.duplicate();
         dup.position(offset);
         dup.limit(offset + length);
         try
         {
-            while (dup.hasRemaining())
+            if (conn.enqueue(dup))
             {
-                dst.write(dup);
+                selector.wakeup();
             }
-        } catch (IOException e)
+        } catch (IOException | CancelledKeyException e)
         {
+            drop(conn);
             throw new IllegalStateException("TCP server send failed", e);
         }
     }
 
-    private SocketChannel selectTarget()
+    private Connection selectTarget()
     {
-        SocketChannel last = lastActive;
-        if (last != null && last.isOpen())
+        Connection last = lastActive;
+        if (last != null && last.channel.isOpen())
         {
             return last;
         }
-        if (clients.size() == 1)
+        if (connections.size() == 1)
         {
-            SocketChannel only = clients.get(0);
-            if (only.isOpen())
+            for (Connection only : connections)
             {
-                return only;
+                if (only.channel.isOpen())
+                {
+                    return only;
+                }
             }
         }
         return null;
@@ -153,28 +244,112 @@ final class TcpServerTransport implements MavlinkTransport
     public void close()
     {
         running = false;
-        if (acceptThread != null)
+        if (selector != null)
         {
-            acceptThread.interrupt();
+            selector.wakeup();
         }
         if (server != null)
         {
             try
             {
                 server.close();
+                if (unix)
+                {
+                    Files.deleteIfExists(((UnixDomainSocketAddress) bind).getPath());
+                }
+            } catch (IOException ignore)
+            {
+            }
+        }
+        for (Connection conn : connections)
+        {
+            conn.close();
+        }
+        connections.clear();
+        if (selector != null)
+        {
+            try
+            {
+                selector.close();
             } catch (IOException ignore)
             {
             }
         }
-        for (SocketChannel ch : clients)
+    }
+
+    private static final class Connection
+    {
+        final SocketChannel channel;
+        final MavlinkInboundLane lane;
+        final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+        SelectionKey key;
+        int queuedBytes;
+
+        Connection(SocketChannel channel, MavlinkInboundLane lane)
         {
+            this.channel = channel;
+            this.lane = lane;
+        }
+
+        // Writes directly while nothing is queued; returns true when write interest was just armed.
+        synchronized boolean enqueue(ByteBuffer data) throws IOException
+        {
+            if (pending.isEmpty())
+            {
+                channel.write(data);
+                if (!data.hasRemaining())
+                {
+                    return false;
+                }
+            }
+            int remaining = data.remaining();
+            if (queuedBytes + remaining > MAX_QUEUED_BYTES)
+            {
+                throw new IllegalStateException("TCP client write queue full");
+            }
+            ByteBuffer copy = ByteBuffer.allocate(remaining);
+            copy.put(data);
+            copy.flip();
+            boolean arm = pending.isEmpty();
+            pending.addLast(copy);
+            queuedBytes += remaining;
+            if (arm)
+            {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+            return arm;
+        }
+
+        synchronized void flush() throws IOException
+        {
+            while (!pending.isEmpty())
+            {
+                ByteBuffer head = pending.peekFirst();
+                int before = head.remaining();
+                channel.write(head);
+                queuedBytes -= before - head.remaining();
+                if (head.hasRemaining())
+                {
+                    return;
+                }
+                pending.pollFirst();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+
+        void close()
+        {
+            if (key != null)
+            {
+                key.cancel();
+            }
             try
             {
-                ch.close();
+                channel.close();
             } catch (IOException ignore)
             {
             }
+            lane.close();
         }
-        clients.clear();
     }
 }
@@ -1,29 +1,34 @@
 package com.chulise.mavlink.quarkus;
 
 import java.io.IOException;
-import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
-import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+// Connecting stream transport; also serves Unix domain sockets, which skip the loopback IP stack for local bridges.
 final class TcpTransport implements MavlinkTransport
 {
     private static final long RECONNECT_DELAY_MS = 1000L;
     private static final long MAX_READ_IDLE_MS = 5000L;
 
-    private final InetSocketAddress bind;
-    private final InetSocketAddress remote;
+    private final SocketAddress bind;
+    private final SocketAddress remote;
     private final int bufferSize;
+    private final boolean unix;
     private volatile boolean running;
     private volatile SocketChannel channel;
     private volatile long lastReadAtMillis;
     private Thread thread;
 
-    TcpTransport(InetSocketAddress bind, InetSocketAddress remote, int bufferSize)
+    TcpTransport(SocketAddress bind, SocketAddress remote, int bufferSize)
     {
         this.bind = bind;
         this.remote = remote;
         this.bufferSize = Math.max(1024, bufferSize);
+        this.unix = remote instanceof UnixDomainSocketAddress;
     }
 
     @Override
@@ -33,19 +38,20 @@ final class TcpTransport implements MavlinkTransport
     }
 
     @Override
-    public void start(Consumer<ByteBuffer> onPacket)
+    public void start(Supplier<MavlinkInboundLane> lanes)
     {
         if (running)
         {
             return;
         }
         running = true;
-        thread = new Thread(() -> runLoop(onPacket), "mavlink-tcp");
+        MavlinkInboundLane lane = lanes.get();
+        thread = new Thread(() -> runLoop(lane), unix ? "mavlink-unix" : "mavlink-tcp");
         thread.setDaemon(true);
         thread.start();
     }
 
-    private void runLoop(Consumer<ByteBuffer> onPacket)
+    private void runLoop(MavlinkInboundLane lane)
     {
         ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
         while (running)
@@ -53,7 +59,7 @@ final class TcpTransport implements MavlinkTransport
             SocketChannel ch = null;
             try
             {
-                ch = SocketChannel.open();
+                ch = unix ? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open();
                 if (bind != null)
                 {
                     ch.bind(bind);
@@ -66,6 +72,7 @@ final class TcpTransport implements MavlinkTransport
                 ch.configureBlocking(true);
                 this.channel = ch;
                 this.lastReadAtMillis = System.currentTimeMillis();
+                lane.reset();
 
                 while (running)
                 {
@@ -79,7 +86,7 @@ final class TcpTransport implements MavlinkTransport
                     {
                         this.lastReadAtMillis = System.currentTimeMillis();
                         buffer.flip();
-                        onPacket.accept(buffer);
+                        lane.onData(buffer);
                     }
                 }
             } catch (IOException e)
@@ -104,6 +111,7 @@ final class TcpTransport implements MavlinkTransport
                 sleepBeforeReconnect();
             }
         }
+        lane.close();
     }
 
     private void sleepBeforeReconnect()
@@ -0,0 +1,253 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkPacketView;
+import com.chulise.mavlink.core.MavlinkView;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+// Last `depth` payloads per (sysid, msgid) in off-heap rings. Each sample carries a sequence written before and after
+// the payload, so queries read fields in place and drop samples that were overwritten while being read.
+public final class TelemetryHistory
+{
+    private static final int OFF_SEQ = 0;
+    private static final int OFF_TIME = 8;
+    private static final int OFF_PAYLOAD = 16;
+    private static final int MAX_PAYLOAD = 256;
+    private static final int STRIDE = OFF_PAYLOAD + MAX_PAYLOAD;
+    private static final int MAX_PROBES = 16;
+    private static final ByteBuffer ZEROS = ByteBuffer.allocateDirect(MAX_PAYLOAD);
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final int[] messageIds;
+    private final int depth;
+    private final AtomicLongArray keys;
+    private final AtomicReferenceArray<Ring> rings;
+    private final int mask;
+    private final LongAdder drops = new LongAdder();
+
+    // Memory is bounded by maxSeries * depth * 272 bytes; rings are allocated when a series is first seen.
+    TelemetryHistory(int[] messageIds, int depth, int maxSeries)
+    {
+        this.messageIds = messageIds.clone();
+        Arrays.sort(this.messageIds);
+        this.depth = Integer.highestOneBit(Math.max(2, depth) - 1) << 1;
+        int size = Integer.highestOneBit(Math.max(8, maxSeries) - 1) << 1;
+        this.keys = new AtomicLongArray(size);
+        this.rings = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public int depth()
+    {
+        return depth;
+    }
+
+    // Samples not recorded because no series slot was left for their key.
+    public long drops()
+    {
+        return drops.sum();
+    }
+
+    void record(MavlinkPacketView packet)
+    {
+        int msgId = packet.getMessageId();
+        if (Arrays.binarySearch(messageIds, msgId) < 0)
+        {
+            return;
+        }
+        Ring ring = ring(key(packet.getSysId(), msgId), true);
+        if (ring == null)
+        {
+            drops.increment();
+            return;
+        }
+        ring.append(packet);
+    }
+
+    // Fills times/values with samples received in [fromMillis, toMillis], oldest first, and returns how many were
+    // written. When the arrays are too small the newest samples are kept. The field reader runs against a view
+    // wrapped directly over the ring, so it must not retain the view.
+    public <V extends MavlinkView> int query(int sysId,
+                                             V view,
+                                             long fromMillis,
+                                             long toMillis,
+                                             ToDoubleFunction<V> field,
+                                             long[] times,
+                                             double[] values)
+    {
+        Ring ring = ring(key(sysId, view.getMessageId()), false);
+        if (ring == null)
+        {
+            return 0;
+        }
+        int max = Math.min(times.length, values.length);
+        int n = 0;
+        long head = ring.head.get();
+        for (long seq = head - 1; seq >= 0 && seq >= head - depth && n < max; seq--)
+        {
+            int base = (int) (seq & (depth - 1)) * STRIDE;
+            long expected = 2 * seq + 2;
+            if ((long) LONGS.getAcquire(ring.data, base + OFF_SEQ) != expected)
+            {
+                if (seq == head - 1)
+                {
+                    // The newest sample may still be in progress.
+                    continue;
+                }
+                break;
+            }
+            long time = ring.data.getLong(base + OFF_TIME);
+            if (time > toMillis)
+            {
+                continue;
+            }
+            if (time < fromMillis)
+            {
+                break;
+            }
+            view.wrapPayload(ring.data, base + OFF_PAYLOAD);
+            double value = field.applyAsDouble(view);
+            VarHandle.loadLoadFence();
+            if ((long) LONGS.getAcquire(ring.data, base + OFF_SEQ) != expected)
+            {
+                break;
+            }
+            times[n] = time;
+            values[n] = value;
+            n++;
+        }
+        reverse(times, values, n);
+        return n;
+    }
+
+    public <V extends MavlinkView> Series series(int sysId,
+                                                 V view,
+                                                 long fromMillis,
+                                                 long toMillis,
+                                                 ToDoubleFunction<V> field)
+    {
+        long[] times = new long[depth];
+        double[] values = new double[depth];
+        int n = query(sysId, view, fromMillis, toMillis, field, times, values);
+        return new Series(Arrays.copyOf(times, n), Arrays.copyOf(values, n));
+    }
+
+    private static void reverse(long[] times, double[] values, int n)
+    {
+        for (int i = 0, j = n - 1; i < j; i++, j--)
+        {
+            long t = times[i];
+            times[i] = times[j];
+            times[j] = t;
+            double v = values[i];
+            values[i] = values[j];
+            values[j] = v;
+        }
+    }
+
+    private Ring ring(long key, boolean insert)
+    {
+        int idx = (int) (mix(key) & mask);
+        for (int probe = 0; probe < MAX_PROBES; probe++)
+        {
+            long current = keys.get(idx);
+            if (current == key)
+            {
+                return rings.get(idx);
+            }
+            if (current == 0)
+            {
+                if (!insert)
+                {
+                    return null;
+                }
+                if (keys.compareAndSet(idx, 0, key))
+                {
+                    Ring ring = new Ring(depth);
+                    rings.set(idx, ring);
+                    return ring;
+                }
+                if (keys.get(idx) == key)
+                {
+                    // Another lane may still be allocating this series; if so, this sample is dropped.
+                    return rings.get(idx);
+                }
+            }
+            idx = (idx + 1) & mask;
+        }
+        return null;
+    }
+
+    private static long key(int sysId, int messageId)
+    {
+        return (1L << 48) | ((long) (sysId & 0xFF) << 24) | (messageId & 0xFFFFFF);
+    }
+
+    private static long mix(long key)
+    {
+        key *= 0x9E3779B97F4A7C15L;
+        return key ^ (key >>> 29);
+    }
+
+    public static final class Series
+    {
+        private final long[] times;
+        private final double[] values;
+
+        Series(long[] times, double[] values)
+        {
+            this.times = times;
+            this.values = values;
+        }
+
+        public int size()
+        {
+            return times.length;
+        }
+
+        public long[] timesMillis()
+        {
+            return times;
+        }
+
+        public double[] values()
+        {
+            return values;
+        }
+    }
+
+    private static final class Ring
+    {
+        final ByteBuffer data;
+        final AtomicLong head = new AtomicLong();
+        final int mask;
+
+        Ring(int depth)
+        {
+            this.data = ByteBuffer.allocateDirect(depth * STRIDE + 64).alignedSlice(64).order(ByteOrder.LITTLE_ENDIAN);
+            this.mask = depth - 1;
+        }
+
+        void append(MavlinkPacketView packet)
+        {
+            long seq = head.getAndIncrement();
+            int base = (int) (seq & mask) * STRIDE;
+            int length = Math.min(packet.getPayloadLength(), MAX_PAYLOAD);
+            LONGS.setRelease(data, base + OFF_SEQ, 2 * seq + 1);
+            VarHandle.storeStoreFence();
+            data.putLong(base + OFF_TIME, System.currentTimeMillis());
+            data.put(base + OFF_PAYLOAD, packet.getBuffer(), packet.getPayloadOffset(), length);
+            // Trimmed extension fields must read as zero, not as a previous sample's bytes.
+            data.put(base + OFF_PAYLOAD + length, ZEROS, 0, MAX_PAYLOAD - length);
+            LONGS.setRelease(data, base + OFF_SEQ, 2 * seq + 2);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkPacketView;
+import com.chulise.mavlink.core.MavlinkView;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latest payload per (sysid, compid, msgid) in preallocated off-heap slots. Writers take a slot's seqlock by moving
+// its sequence to odd; readers copy the slot and retry when the sequence moved underneath them.
+public final class TelemetryStateCache
+{
+    private static final int SLOT_SIZE = 320;
+    private static final int OFF_SEQ = 0;
+    private static final int OFF_TIME = 8;
+    private static final int OFF_LENGTH = 16;
+    private static final int OFF_PACKET_SEQ = 20;
+    private static final int OFF_PAYLOAD = 24;
+    private static final int MAX_PAYLOAD = 255;
+    private static final int MAX_PROBES = 16;
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer slots;
+    private final AtomicLongArray keys;
+    private final int mask;
+    private final int[] messageIds;
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+
+    // messageIds limits the cache to those messages; empty caches every message.
+    TelemetryStateCache(int capacity, int[] messageIds)
+    {
+        int size = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+        this.slots = ByteBuffer.allocateDirect(size * SLOT_SIZE + 64).alignedSlice(64).order(ByteOrder.LITTLE_ENDIAN);
+        this.keys = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.messageIds = messageIds.clone();
+        Arrays.sort(this.messageIds);
+    }
+
+    public Snapshot snapshot()
+    {
+        return new Snapshot();
+    }
+
+    public long updates()
+    {
+        return updates.sum();
+    }
+
+    // Updates dropped because the probe window around their key was full.
+    public long overflows()
+    {
+        return overflows.sum();
+    }
+
+    void update(MavlinkPacketView packet)
+    {
+        int msgId = packet.getMessageId();
+        if (messageIds.length != 0 && Arrays.binarySearch(messageIds, msgId) < 0)
+        {
+            return;
+        }
+        int slot = slot(key(packet.getSysId(), packet.getCompId(), msgId), true);
+        if (slot < 0)
+        {
+            overflows.increment();
+            return;
+        }
+        int base = slot * SLOT_SIZE;
+        long seq;
+        while (true)
+        {
+            seq = (long) LONGS.getVolatile(slots, base + OFF_SEQ);
+            if ((seq & 1) == 0 && LONGS.compareAndSet(slots, base + OFF_SEQ, seq, seq + 1))
+            {
+                break;
+            }
+            Thread.onSpinWait();
+        }
+        int length = Math.min(packet.getPayloadLength(), MAX_PAYLOAD);
+        slots.putLong(base + OFF_TIME, System.currentTimeMillis());
+        slots.putInt(base + OFF_LENGTH, length);
+        slots.putInt(base + OFF_PACKET_SEQ, packet.getSequence());
+        slots.put(base + OFF_PAYLOAD, packet.getBuffer(), packet.getPayloadOffset(), length);
+        LONGS.setRelease(slots, base + OFF_SEQ, seq + 2);
+        updates.increment();
+    }
+
+    // Copies the latest payload into the snapshot; false when nothing has been received for the key yet.
+    public boolean read(int sysId, int compId, int messageId, Snapshot into)
+    {
+        int slot = slot(key(sysId, compId, messageId), false);
+        if (slot < 0)
+        {
+            return false;
+        }
+        int base = slot * SLOT_SIZE;
+        while (true)
+        {
+            long before = (long) LONGS.getAcquire(slots, base + OFF_SEQ);
+            if (before == 0)
+            {
+                return false;
+            }
+            if ((before & 1) != 0)
+            {
+                Thread.onSpinWait();
+                continue;
+            }
+            long time = slots.getLong(base + OFF_TIME);
+            int length = slots.getInt(base + OFF_LENGTH);
+            int packetSeq = slots.getInt(base + OFF_PACKET_SEQ);
+            if (length >= 0 && length <= MAX_PAYLOAD)
+            {
+                into.copy(slots, base + OFF_PAYLOAD, length);
+            }
+            VarHandle.loadLoadFence();
+            if ((long) LONGS.getVolatile(slots, base + OFF_SEQ) == before)
+            {
+                into.fill(sysId, compId, messageId, packetSeq, time, length);
+                return true;
+            }
+        }
+    }
+
+    // Wraps the view over the snapshot's copy of the latest payload, or returns null when none was received.
+    public <V extends MavlinkView> V read(int sysId, int compId, V view, Snapshot into)
+    {
+        if (!read(sysId, compId, view.getMessageId(), into))
+        {
+            return null;
+        }
+        view.wrapPayload(into.payload, 0);
+        return view;
+    }
+
+    private int slot(long key, boolean insert)
+    {
+        int idx = (int) (mix(key) & mask);
+        for (int probe = 0; probe < MAX_PROBES; probe++)
+        {
+            long current = keys.get(idx);
+            if (current == key)
+            {
+                return idx;
+            }
+            if (current == 0)
+            {
+                if (!insert)
+                {
+                    return -1;
+                }
+                if (keys.compareAndSet(idx, 0, key) || keys.get(idx) == key)
+                {
+                    return idx;
+                }
+            }
+            idx = (idx + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Never zero, so an empty key slot is unambiguous.
+    private static long key(int sysId, int compId, int messageId)
+    {
+        return (1L << 48) | ((long) (sysId & 0xFF) << 32) | ((long) (compId & 0xFF) << 24) | (messageId & 0xFFFFFF);
+    }
+
+    private static long mix(long key)
+    {
+        key *= 0x9E3779B97F4A7C15L;
+        return key ^ (key >>> 29);
+    }
+
+    // Reader-owned copy of one slot; reuse it across reads to stay allocation-free. Not thread-safe.
+    public static final class Snapshot
+    {
+        private final ByteBuffer payload = ByteBuffer.allocate(MAX_PAYLOAD + 1).order(ByteOrder.LITTLE_ENDIAN);
+        private int sysId;
+        private int compId;
+        private int messageId;
+        private int sequence;
+        private long receivedAtMillis;
+        private int length;
+        private int dirty;
+
+        private Snapshot()
+        {
+        }
+
+        private void copy(ByteBuffer src, int offset, int length)
+        {
+            payload.put(0, src, offset, length);
+            dirty = Math.max(dirty, length);
+        }
+
+        private void fill(int sysId, int compId, int messageId, int sequence, long receivedAtMillis, int length)
+        {
+            // Zero whatever a longer earlier copy left behind, so trimmed extension fields read as zero.
+            for (int i = length; i < dirty; i++)
+            {
+                payload.put(i, (byte) 0);
+            }
+            dirty = length;
+            this.sysId = sysId;
+            this.compId = compId;
+            this.messageId = messageId;
+            this.sequence = sequence;
+            this.receivedAtMillis = receivedAtMillis;
+            this.length = length;
+        }
+
+        public int sysId()
+        {
+            return sysId;
+        }
+
+        public int compId()
+        {
+            return compId;
+        }
+
+        public int messageId()
+        {
+            return messageId;
+        }
+
+        public int sequence()
+        {
+            return sequence;
+        }
+
+        public long receivedAtMillis()
+        {
+            return receivedAtMillis;
+        }
+
+        public int payloadLength()
+        {
+            return length;
+        }
+
+        public ByteBuffer payload()
+        {
+            return payload;
+        }
+
+        public <V extends MavlinkView> V wrap(V view)
+        {
+            view.wrapPayload(payload, 0);
+            return view;
+        }
+    }
+}
@@ -1,27 +1,67 @@
 package com.chulise.mavlink.quarkus;
 
+import com.chulise.mavlink.core.MavlinkIdleStrategy;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.DatagramChannel;
-import java.util.function.Consumer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
+// Receive threads wait in a selector by default. With udp.idle set they instead poll their non-blocking channel and
+// back off through the idle strategy, trading CPU for wake-up latency; udp.cpus pins them to cores, and start() fails
+// when a thread cannot be pinned.
 final class UdpTransport implements MavlinkTransport
 {
+    private static final int DEFAULT_BUFFER_SIZE = 2048;
+    private static final int DEFAULT_BATCH_SIZE = 64;
+    private static final long DEFAULT_ROUTE_IDLE_MS = 30_000L;
+
     private final InetSocketAddress bind;
     private final InetSocketAddress remote;
     private final int bufferSize;
+    private final int threads;
+    private final boolean reusePort;
+    private final Integer receiveBufferSize;
+    private final Integer sendBufferSize;
+    private final int batchSize;
+    private final MavlinkEndpointTable routes;
+    private final String idle;
+    private final int[] cpus;
+    private final MavlinkThreadAffinity affinity;
     private volatile boolean running;
-    private DatagramChannel channel;
-    private Thread thread;
+    private DatagramChannel[] channels;
+    private Selector[] selectors;
+    private Thread[] workers;
+    private volatile DatagramChannel sendChannel;
     private volatile SocketAddress lastRemote;
 
-    UdpTransport(InetSocketAddress bind, InetSocketAddress remote, int bufferSize)
+    UdpTransport(InetSocketAddress bind, InetSocketAddress remote, MavlinkUdpConfig cfg)
     {
         this.bind = bind;
         this.remote = remote;
-        this.bufferSize = Math.max(512, bufferSize);
+        this.bufferSize = Math.max(512, cfg != null && cfg.bufferSize != null ? cfg.bufferSize : DEFAULT_BUFFER_SIZE);
+        this.threads = Math.max(1, cfg != null && cfg.threads != null ? cfg.threads : 1);
+        this.reusePort = cfg != null && cfg.reusePort != null ? cfg.reusePort : threads > 1;
+        this.receiveBufferSize = cfg == null ? null : cfg.receiveBufferSize;
+        this.sendBufferSize = cfg == null ? null : cfg.sendBufferSize;
+        this.batchSize = Math.max(1, cfg != null && cfg.batchSize != null ? cfg.batchSize : DEFAULT_BATCH_SIZE);
+        this.routes = new MavlinkEndpointTable(cfg != null && cfg.routeIdleMs != null ? cfg.routeIdleMs : DEFAULT_ROUTE_IDLE_MS);
+        this.idle = cfg != null && cfg.idle != null && !cfg.idle.isBlank() ? cfg.idle.trim() : null;
+        this.cpus = new int[cfg != null && cfg.cpus != null ? cfg.cpus.size() : 0];
+        for (int i = 0; i < cpus.length; i++)
+        {
+            cpus[i] = Integer.parseInt(cfg.cpus.get(i));
+        }
+        boolean pinning = cpus.length > 0 && (cfg.affinity == null || !"none".equalsIgnoreCase(cfg.affinity.trim()));
+        this.affinity = pinning ? MavlinkThreadAffinity.fromName(cfg.affinity) : null;
     }
 
     @Override
@@ -31,61 +71,244 @@ final class UdpTransport implements MavlinkTransport
     }
 
     @Override
-    public void start(Consumer<ByteBuffer> onPacket)
+    public void start(Supplier<MavlinkInboundLane> lanes)
     {
         if (running)
         {
             return;
         }
+        if (threads > 1 && (bind == null || bind.getPort() == 0))
+        {
+            throw new IllegalStateException("UDP bind port is required for multiple receive threads");
+        }
+        if (threads > 1 && !reusePort)
+        {
+            throw new IllegalStateException("UDP multiple receive threads require reuse-port");
+        }
+
+        channels = new DatagramChannel[threads];
+        selectors = new Selector[threads];
+        workers = new Thread[threads];
+        try
+        {
+            for (int i = 0; i < threads; i++)
+            {
+                channels[i] = openChannel();
+                if (idle == null)
+                {
+                    selectors[i] = Selector.open();
+                    channels[i].register(selectors[i], SelectionKey.OP_READ);
+                }
+            }
+        } catch (IOException e)
+        {
+            closeChannels();
+            throw new IllegalStateException("UDP transport error", e);
+        }
+        sendChannel = channels[0];
         running = true;
-        thread = new Thread(() -> runLoop(onPacket), "mavlink-udp");
-        thread.setDaemon(true);
-        thread.start();
+        CountDownLatch pinned = new CountDownLatch(threads);
+        AtomicReference<String> pinFailure = new AtomicReference<>();
+
+        for (int i = 0; i < threads; i++)
+        {
+            DatagramChannel ch = channels[i];
+            Selector selector = selectors[i];
+            MavlinkInboundLane lane = lanes.get();
+            int cpu = affinity != null ? cpus[i % cpus.length] : -1;
+            // Backoff keeps per-thread state, so every worker gets its own strategy.
+            MavlinkIdleStrategy strategy = idle != null ? MavlinkIdleStrategy.fromName(idle) : null;
+            String name = threads == 1 ? "mavlink-udp" : "mavlink-udp-" + i;
+            workers[i] = new Thread(() ->
+            {
+                if (cpu >= 0 && !pin(cpu))
+                {
+                    pinFailure.compareAndSet(null, "cannot pin " + Thread.currentThread().getName() + " to cpu " + cpu);
+                    pinned.countDown();
+                    lane.close();
+                    return;
+                }
+                pinned.countDown();
+                if (strategy == null)
+                {
+                    runLoop(ch, selector, lane);
+                } else
+                {
+                    pollLoop(ch, strategy, lane);
+                }
+            }, name);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        // A pin that silently failed would leave the latency-critical thread wherever the scheduler put it.
+        try
+        {
+            pinned.await();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IllegalStateException("interrupted while starting UDP receive threads", e);
+        }
+        if (pinFailure.get() != null)
+        {
+            close();
+            throw new IllegalStateException(pinFailure.get() + "; set udp.affinity=none to run unpinned");
+        }
     }
 
-    private void runLoop(Consumer<ByteBuffer> onPacket)
+    private boolean pin(int cpu)
+    {
+        try
+        {
+            return affinity.pin(cpu);
+        } catch (RuntimeException e)
+        {
+            return false;
+        }
+    }
+
+    private DatagramChannel openChannel() throws IOException
+    {
+        DatagramChannel ch = DatagramChannel.open();
+        if (reusePort)
+        {
+            if (!ch.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT))
+            {
+                ch.close();
+                throw new IllegalStateException("SO_REUSEPORT is not supported on this platform");
+            }
+            ch.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+        }
+        if (receiveBufferSize != null)
+        {
+            ch.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+        }
+        if (sendBufferSize != null)
+        {
+            ch.setOption(StandardSocketOptions.SO_SNDBUF, sendBufferSize);
+        }
+        if (bind != null)
+        {
+            ch.bind(bind);
+        }
+        ch.configureBlocking(false);
+        return ch;
+    }
+
+    private void runLoop(DatagramChannel ch, Selector selector, MavlinkInboundLane lane)
     {
         ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
-        try (DatagramChannel ch = DatagramChannel.open())
+        try
+        {
+            while (running)
+            {
+                selector.select();
+                selector.selectedKeys().clear();
+                receiveBatch(ch, buffer, lane);
+            }
+        } catch (IOException | ClosedSelectorException e)
         {
-            this.channel = ch;
-            if (bind != null)
+            if (running)
             {
-                ch.bind(bind);
+                throw new IllegalStateException("UDP transport error", e);
             }
+        } finally
+        {
+            lane.close();
+        }
+    }
+
+    private void pollLoop(DatagramChannel ch, MavlinkIdleStrategy strategy, MavlinkInboundLane lane)
+    {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+        try
+        {
             while (running)
             {
-                buffer.clear();
-                SocketAddress src = ch.receive(buffer);
-                if (src != null)
-                {
-                    lastRemote = src;
-                    buffer.flip();
-                    if (buffer.hasRemaining())
-                    {
-                        onPacket.accept(buffer);
-                    }
-                }
+                strategy.idle(receiveBatch(ch, buffer, lane));
             }
         } catch (IOException e)
         {
-            throw new IllegalStateException("UDP transport error", e);
+            if (running)
+            {
+                throw new IllegalStateException("UDP transport error", e);
+            }
+        } finally
+        {
+            lane.close();
         }
     }
 
-    @Override
-    public void send(ByteBuffer buffer, int offset, int length)
+    // Parses and dispatches on the calling thread; returns the number of datagrams read.
+    private int receiveBatch(DatagramChannel ch, ByteBuffer buffer, MavlinkInboundLane lane) throws IOException
     {
-        DatagramChannel ch = this.channel;
-        if (ch == null)
+        int received = 0;
+        while (received < batchSize && running)
         {
-            throw new IllegalStateException("UDP transport not started");
+            buffer.clear();
+            SocketAddress src = ch.receive(buffer);
+            if (src == null)
+            {
+                break;
+            }
+            received++;
+            lastRemote = src;
+            buffer.flip();
+            if (buffer.hasRemaining())
+            {
+                routes.learn(buffer, src);
+                lane.onData(buffer);
+            }
         }
+        return received;
+    }
+
+    @Override
+    public void send(ByteBuffer buffer, int offset, int length)
+    {
         InetSocketAddress dst = this.remote != null ? this.remote : (InetSocketAddress) lastRemote;
         if (dst == null)
         {
             throw new IllegalStateException("UDP remote is not set");
         }
+        sendTo(dst, buffer, offset, length);
+    }
+
+    @Override
+    public void sendTo(int sysId, int compId, ByteBuffer buffer, int offset, int length)
+    {
+        SocketAddress dst = routes.lookup(sysId, compId);
+        if (dst == null)
+        {
+            dst = this.remote;
+        }
+        if (dst == null)
+        {
+            throw new IllegalStateException("UDP route not found for system " + sysId);
+        }
+        sendTo(dst, buffer, offset, length);
+    }
+
+    @Override
+    public int broadcast(ByteBuffer buffer, int offset, int length)
+    {
+        int sent = routes.forEachDistinct(dst -> sendTo(dst, buffer, offset, length));
+        if (sent == 0)
+        {
+            send(buffer, offset, length);
+            return 1;
+        }
+        return sent;
+    }
+
+    private void sendTo(SocketAddress dst, ByteBuffer buffer, int offset, int length)
+    {
+        DatagramChannel ch = this.sendChannel;
+        if (ch == null)
+        {
+            throw new IllegalStateException("UDP transport not started");
+        }
 
         ByteBuffer dup = buffer.duplicate();
         dup.position(offset);
@@ -103,18 +326,56 @@ final class UdpTransport implements MavlinkTransport
     public void close()
     {
         running = false;
-        if (thread != null)
+        sendChannel = null;
+        if (selectors != null)
         {
-            thread.interrupt();
+            for (Selector selector : selectors)
+            {
+                if (selector != null)
+                {
+                    selector.wakeup();
+                }
+            }
         }
-        if (channel != null)
+        if (workers != null)
         {
-            try
+            for (Thread worker : workers)
             {
-                channel.close();
-            } catch (IOException ignore)
+                LockSupport.unpark(worker);
+            }
+        }
+        closeChannels();
+    }
+
+    private void closeChannels()
+    {
+        if (channels != null)
+        {
+            for (DatagramChannel ch : channels)
+            {
+                closeQuietly(ch);
+            }
+        }
+        if (selectors != null)
+        {
+            for (Selector selector : selectors)
             {
+                closeQuietly(selector);
             }
         }
     }
+
+    private static void closeQuietly(AutoCloseable closeable)
+    {
+        if (closeable == null)
+        {
+            return;
+        }
+        try
+        {
+            closeable.close();
+        } catch (Exception ignore)
+        {
+        }
+    }
 }
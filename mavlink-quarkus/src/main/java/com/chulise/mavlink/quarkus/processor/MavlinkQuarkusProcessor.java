@@ -188,9 +188,10 @@ public class MavlinkQuarkusProcessor extends AbstractProcessor
         int messageId = sub.messageId();
         String messageExpr = (messageId >= 0) ? String.valueOf(messageId) : (viewType + ".ID");
 
+        String rateArgs = sub.maxRateHz() > 0 ? ", " + sub.maxRateHz() + ", " + sub.latest() : "";
         writer.write("    dispatcher.addHandler(" + messageExpr + ", " + viewType + ".class, " +
                 "java.lang.ThreadLocal.withInitial(" + viewType + "::new), " +
-                "arg -> " + handlerField + "." + m.getSimpleName() + "((" + viewType + ")arg));\n");
+                "arg -> " + handlerField + "." + m.getSimpleName() + "((" + viewType + ")arg)" + rateArgs + ");\n");
     }
 
     private String resolveViewType(MavlinkSubscribe sub, String paramTypeName)
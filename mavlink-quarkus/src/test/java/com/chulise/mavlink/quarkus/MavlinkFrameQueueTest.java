@@ -0,0 +1,154 @@
+package com.chulise.mavlink.quarkus;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MavlinkFrameQueueTest
+{
+    @Test
+    void testClaimOnFullRingFails()
+    {
+        MavlinkFrameQueue queue = new MavlinkFrameQueue(4);
+        for (int i = 0; i < 4; i++)
+        {
+            int slot = queue.claim();
+            assertEquals(i, slot);
+            queue.publish(slot, 1, -1, 0, 0);
+        }
+        assertEquals(-1, queue.claim());
+
+        queue.release(queue.peek());
+        assertEquals(0, queue.claim());
+    }
+
+    @Test
+    void testClaimedButUnpublishedSlotBlocksConsumer()
+    {
+        MavlinkFrameQueue queue = new MavlinkFrameQueue(4);
+        int first = queue.claim();
+        int second = queue.claim();
+        queue.publish(second, 1, -1, 0, 0);
+        assertEquals(-1, queue.peek());
+
+        queue.publish(first, 1, -1, 0, 0);
+        assertEquals(first, queue.peek());
+    }
+
+    @Test
+    void testWrapsAroundManyTimes()
+    {
+        MavlinkFrameQueue queue = new MavlinkFrameQueue(4);
+        for (int i = 0; i < 100; i++)
+        {
+            int slot = queue.claim();
+            assertEquals(i & 3, slot);
+            queue.frame(slot).putInt(0, i);
+            queue.publish(slot, 4, i & 0xFF, 1, i);
+
+            int head = queue.peek();
+            assertEquals(slot, head);
+            assertEquals(i, queue.frame(head).getInt(0));
+            assertEquals(4, queue.length(head));
+            assertEquals(i & 0xFF, queue.sysId(head));
+            assertEquals(i, queue.enqueuedAt(head));
+            queue.release(head);
+            assertEquals(-1, queue.peek());
+        }
+    }
+
+    @Test
+    void testFailedSlotIsSkipped()
+    {
+        MavlinkFrameQueue queue = new MavlinkFrameQueue(4);
+        int failed = queue.claim();
+        int good = queue.claim();
+        queue.publish(failed, 0, -1, 0, 0);
+        queue.frame(good).putInt(0, 42);
+        queue.publish(good, 4, -1, 0, 0);
+
+        List<Integer> seen = new ArrayList<>();
+        int slot;
+        while ((slot = queue.peek()) >= 0)
+        {
+            if (queue.length(slot) > 0)
+            {
+                seen.add(queue.frame(slot).getInt(0));
+            }
+            queue.release(slot);
+        }
+        assertEquals(List.of(42), seen);
+    }
+
+    @Test
+    void testManyProducersOneConsumer() throws InterruptedException
+    {
+        int producers = 4;
+        int perProducer = 20_000;
+        MavlinkFrameQueue queue = new MavlinkFrameQueue(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++)
+        {
+            int id = p;
+            Thread thread = new Thread(() ->
+            {
+                awaitQuietly(start);
+                for (int i = 0; i < perProducer; i++)
+                {
+                    int slot;
+                    while ((slot = queue.claim()) < 0)
+                    {
+                        Thread.yield();
+                    }
+                    queue.frame(slot).putInt(0, i);
+                    queue.publish(slot, 4, id, 0, 0);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        // Each producer's frames must arrive complete and in its own order.
+        int[] next = new int[producers];
+        int received = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        start.countDown();
+        while (received < producers * perProducer && System.nanoTime() < deadline)
+        {
+            int slot = queue.peek();
+            if (slot < 0)
+            {
+                Thread.yield();
+                continue;
+            }
+            int id = queue.sysId(slot);
+            assertEquals(next[id], queue.frame(slot).getInt(0));
+            next[id]++;
+            received++;
+            queue.release(slot);
+        }
+        for (Thread thread : threads)
+        {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        assertEquals(producers * perProducer, received);
+        assertEquals(-1, queue.peek());
+        assertTrue(queue.claim() >= 0, "ring should have room once drained");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
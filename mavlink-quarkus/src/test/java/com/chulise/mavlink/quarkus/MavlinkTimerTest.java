@@ -0,0 +1,94 @@
+package com.chulise.mavlink.quarkus;
+
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MavlinkTimerTest
+{
+    @Test
+    void testTaskRunsAfterDelay() throws InterruptedException
+    {
+        try (MavlinkTimer timer = new MavlinkTimer("timer-test"))
+        {
+            CountDownLatch fired = new CountDownLatch(1);
+            AtomicLong firedAt = new AtomicLong();
+            long start = System.nanoTime();
+            MavlinkTimer.Timeout timeout = timer.schedule(() ->
+            {
+                firedAt.set(System.nanoTime());
+                fired.countDown();
+            }, 50, TimeUnit.MILLISECONDS);
+
+            assertTrue(fired.await(5, TimeUnit.SECONDS));
+            assertTrue(firedAt.get() - start >= TimeUnit.MILLISECONDS.toNanos(50), "fired early");
+            assertTrue(timeout.isExpired());
+            assertFalse(timeout.cancel());
+        }
+    }
+
+    @Test
+    void testDelayBeyondOneWheelRevolution() throws InterruptedException
+    {
+        try (MavlinkTimer timer = new MavlinkTimer("timer-test", TimeUnit.MILLISECONDS.toNanos(1), 16))
+        {
+            CountDownLatch fired = new CountDownLatch(1);
+            long start = System.nanoTime();
+            timer.schedule(fired::countDown, 60, TimeUnit.MILLISECONDS);
+
+            assertTrue(fired.await(5, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(60), "fired a revolution early");
+        }
+    }
+
+    @Test
+    void testCancelledTaskNeverRuns() throws InterruptedException
+    {
+        try (MavlinkTimer timer = new MavlinkTimer("timer-test"))
+        {
+            AtomicInteger runs = new AtomicInteger();
+            MavlinkTimer.Timeout cancelled = timer.schedule(runs::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+            assertTrue(cancelled.cancel());
+            assertTrue(cancelled.isCancelled());
+            assertFalse(cancelled.cancel());
+
+            // A later task on the same thread proves the wheel moved past the cancelled deadline.
+            CountDownLatch later = new CountDownLatch(1);
+            timer.schedule(later::countDown, 80, TimeUnit.MILLISECONDS);
+            assertTrue(later.await(5, TimeUnit.SECONDS));
+            assertEquals(0, runs.get());
+            assertFalse(cancelled.isExpired());
+        }
+    }
+
+    @Test
+    void testFailingTaskDoesNotStallTimer() throws InterruptedException
+    {
+        try (MavlinkTimer timer = new MavlinkTimer("timer-test"))
+        {
+            timer.schedule(() ->
+            {
+                throw new IllegalStateException("boom");
+            }, 1, TimeUnit.MILLISECONDS);
+            CountDownLatch fired = new CountDownLatch(1);
+            timer.schedule(fired::countDown, 20, TimeUnit.MILLISECONDS);
+            assertTrue(fired.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testScheduleAfterCloseFails()
+    {
+        MavlinkTimer timer = new MavlinkTimer("timer-test");
+        timer.close();
+        assertThrows(IllegalStateException.class, () -> timer.schedule(() ->
+        {
+        }, 1, TimeUnit.MILLISECONDS));
+    }
+}
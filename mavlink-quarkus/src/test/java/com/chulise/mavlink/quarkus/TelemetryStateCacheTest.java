@@ -0,0 +1,117 @@
+package com.chulise.mavlink.quarkus;
+
+import com.chulise.mavlink.core.MavlinkPacketView;
+import com.chulise.mavlink.core.MavlinkPacketWriter;
+import org.junit.jupiter.api.Test;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TelemetryStateCacheTest
+{
+    private static final int MSG_ID = 33;
+    private static final int PAYLOAD = 200;
+
+    @Test
+    void testReadReturnsLatestUpdate()
+    {
+        TelemetryStateCache cache = new TelemetryStateCache(64, new int[0]);
+        TelemetryStateCache.Snapshot snapshot = cache.snapshot();
+        assertFalse(cache.read(1, 1, MSG_ID, snapshot));
+
+        MavlinkPacketView view = new MavlinkPacketView();
+        ByteBuffer buf = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
+        cache.update(packet(buf, view, 1, 1, 7, PAYLOAD));
+        cache.update(packet(buf, view, 1, 1, 9, 10));
+
+        assertTrue(cache.read(1, 1, MSG_ID, snapshot));
+        assertEquals(9, snapshot.sequence());
+        assertEquals(10, snapshot.payloadLength());
+        assertEquals(9, snapshot.payload().get(0));
+        // The shorter update must not leave the earlier, longer payload visible.
+        assertEquals(0, snapshot.payload().get(10));
+        assertEquals(2, cache.updates());
+        assertFalse(cache.read(1, 2, MSG_ID, snapshot));
+    }
+
+    @Test
+    void testFilterSkipsOtherMessages()
+    {
+        TelemetryStateCache cache = new TelemetryStateCache(64, new int[]{MSG_ID});
+        MavlinkPacketView view = new MavlinkPacketView();
+        ByteBuffer buf = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
+        cache.update(packet(buf, view, 1, 1, MSG_ID + 1, 1, 8));
+
+        assertEquals(0, cache.updates());
+        assertFalse(cache.read(1, 1, MSG_ID + 1, cache.snapshot()));
+    }
+
+    @Test
+    void testConcurrentReadsNeverSeeTornPayload() throws InterruptedException
+    {
+        TelemetryStateCache cache = new TelemetryStateCache(64, new int[0]);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() ->
+        {
+            MavlinkPacketView view = new MavlinkPacketView();
+            ByteBuffer buf = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
+            int i = 0;
+            while (running.get())
+            {
+                cache.update(packet(buf, view, 1, 1, i++ & 0xFF, PAYLOAD));
+            }
+        });
+        writer.start();
+
+        TelemetryStateCache.Snapshot snapshot = cache.snapshot();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+        int reads = 0;
+        try
+        {
+            while (System.nanoTime() < deadline)
+            {
+                if (!cache.read(1, 1, MSG_ID, snapshot))
+                {
+                    continue;
+                }
+                // Every byte of a payload carries its packet's sequence, so a mixed copy shows up immediately.
+                byte expected = (byte) snapshot.sequence();
+                assertEquals(PAYLOAD, snapshot.payloadLength());
+                for (int b = 0; b < PAYLOAD; b++)
+                {
+                    assertEquals(expected, snapshot.payload().get(b), "torn read at byte " + b);
+                }
+                reads++;
+            }
+        } finally
+        {
+            running.set(false);
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        assertTrue(reads > 0);
+        assertTrue(cache.updates() > 0);
+    }
+
+    private static MavlinkPacketView packet(ByteBuffer buf, MavlinkPacketView view, int sysId, int compId,
+                                            int sequence, int length)
+    {
+        return packet(buf, view, sysId, compId, MSG_ID, sequence, length);
+    }
+
+    private static MavlinkPacketView packet(ByteBuffer buf, MavlinkPacketView view, int sysId, int compId,
+                                            int messageId, int sequence, int length)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            buf.put(MavlinkPacketView.HEADER_LEN_V2 + i, (byte) sequence);
+        }
+        MavlinkPacketWriter.writeV2InPlace(buf, 0, sequence, sysId, compId, messageId, 0, length, length,
+                false, 0, 0, null, 0, 0);
+        view.wrap(buf, 0);
+        return view;
+    }
+}